@@ -3,15 +3,15 @@ package org.projectmanagement.UI;
 import org.projectmanagement.dao.UserDAO;
 import org.projectmanagement.models.User;
 
+import javax.sql.DataSource;
 import javax.swing.*;
 import java.awt.*;
-import java.sql.Connection;
 import java.sql.SQLException;
 import javax.swing.border.EmptyBorder;
 
 public class ChangePasswordPanel extends JPanel {
     private User loggedUser;
-    private Connection connection;
+    private DataSource dataSource;
     private UserDAO userDAO;
     private JPasswordField txtOldPassword;
     private JPasswordField txtNewPassword;
@@ -24,10 +24,10 @@ public class ChangePasswordPanel extends JPanel {
     private static final Color TEXT_SECONDARY = new Color(107, 124, 147);
     private static final Color ACCENT_COLOR = new Color(79, 172, 254);
 
-    public ChangePasswordPanel(User user, Connection connection) {
+    public ChangePasswordPanel(User user, DataSource dataSource) {
         this.loggedUser = user;
-        this.connection = connection;
-        this.userDAO = new UserDAO(connection);
+        this.dataSource = dataSource;
+        this.userDAO = new UserDAO(dataSource);
         initComponents();
     }
 
@@ -1,8 +1,8 @@
 package org.projectmanagement.UI;
 
-import org.projectmanagement.dao.ProjectDAO;
-import org.projectmanagement.models.Project;
-import org.projectmanagement.models.User;
+import org.projectmanagement.dao.StatsDAO;
+import org.projectmanagement.models.ProjectStats;
+import org.projectmanagement.models.UserSession;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -10,31 +10,33 @@ import org.jfree.chart.labels.StandardPieSectionLabelGenerator;
 import org.jfree.chart.plot.PiePlot;
 import org.jfree.data.general.DefaultPieDataset;
 
+import javax.sql.DataSource;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.sql.Connection;
 import java.text.DecimalFormat;
-import java.util.List;
+import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 
 public class ChartsPanel extends JPanel {
-    private User loggedUser;
-    private Connection connection;
-    private ProjectDAO projectDAO;
+    private UserSession session;
+    private DataSource dataSource;
+    private StatsDAO statsDAO;
     private JTextField txtSearch;
     private JButton btnSearch, btnReset;
     private ChartPanel pieChartPanel;
     private JTable summaryTable;
+    private JTable scoreTable;
 
-    public ChartsPanel(User user, Connection connection) {
-        this.loggedUser = user;
-        this.connection = connection;
-        this.projectDAO = new ProjectDAO(connection);
+    public ChartsPanel(UserSession session, DataSource dataSource) {
+        this.session = session;
+        this.dataSource = dataSource;
+        this.statsDAO = new StatsDAO(dataSource);
         initComponents();
         loadChartAsync();
     }
@@ -117,6 +119,22 @@ public class ChartsPanel extends JPanel {
         chartsContainer.add(pieChartPanel);
         chartsContainer.add(Box.createVerticalStrut(20));
         chartsContainer.add(tableScrollPane);
+        chartsContainer.add(Box.createVerticalStrut(20));
+
+        // Bảng điểm trung bình và phân bố xếp loại
+        scoreTable = new JTable();
+        scoreTable.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        scoreTable.setRowHeight(25);
+        scoreTable.setGridColor(new Color(200, 200, 200));
+        JScrollPane scoreScrollPane = new JScrollPane(scoreTable);
+        scoreScrollPane.setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createLineBorder(new Color(200, 200, 200)),
+                "Điểm số và xếp loại",
+                TitledBorder.CENTER,
+                TitledBorder.TOP,
+                new Font("Segoe UI", Font.BOLD, 16)
+        ));
+        chartsContainer.add(scoreScrollPane);
         chartsContainer.add(Box.createVerticalStrut(10));
 
         JScrollPane scrollPane = new JScrollPane(chartsContainer);
@@ -126,19 +144,16 @@ public class ChartsPanel extends JPanel {
     }
 
     private void loadChartAsync() {
-        SwingWorker<List<Project>, Void> worker = new SwingWorker<List<Project>, Void>() {
+        SwingWorker<ProjectStats, Void> worker = new SwingWorker<ProjectStats, Void>() {
             @Override
-            protected List<Project> doInBackground() throws Exception {
-                synchronized (projectDAO) {
-                    return projectDAO.findAll();
-                }
+            protected ProjectStats doInBackground() throws Exception {
+                return loadStatsForCurrentUser(null);
             }
 
             @Override
             protected void done() {
                 try {
-                    List<Project> projects = get();
-                    updateCharts(projects);
+                    updateCharts(get());
                 } catch (InterruptedException | ExecutionException e) {
                     JOptionPane.showMessageDialog(ChartsPanel.this, "Lỗi tải dữ liệu: " + e.getMessage(), "Lỗi", JOptionPane.ERROR_MESSAGE);
                 }
@@ -153,20 +168,18 @@ public class ChartsPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Vui lòng nhập từ khóa tìm kiếm.", "Thông báo", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        SwingWorker<List<Project>, Void> worker = new SwingWorker<List<Project>, Void>() {
+        SwingWorker<ProjectStats, Void> worker = new SwingWorker<ProjectStats, Void>() {
             @Override
-            protected List<Project> doInBackground() throws Exception {
-                synchronized (projectDAO) {
-                    return projectDAO.searchByTitleOrStudentId(Nathan);
-                }
+            protected ProjectStats doInBackground() throws Exception {
+                return loadStatsForCurrentUser(Nathan);
             }
 
             @Override
             protected void done() {
                 try {
-                    List<Project> projects = get();
-                    updateCharts(projects);
-                    if (projects.isEmpty()) {
+                    ProjectStats stats = get();
+                    updateCharts(stats);
+                    if (stats.getTotalProjects() == 0) {
                         JOptionPane.showMessageDialog(ChartsPanel.this, "Không tìm thấy đồ án nào.", "Thông báo", JOptionPane.INFORMATION_MESSAGE);
                     }
                 } catch (InterruptedException | ExecutionException e) {
@@ -177,20 +190,26 @@ public class ChartsPanel extends JPanel {
         worker.execute();
     }
 
-    private void updateCharts(List<Project> projects) {
-        // Lọc theo role
-        if ("user".equals(loggedUser.getRole())) {
-            projects = projects.stream()
-                    .filter(p -> p.getStudentId() == loggedUser.getUserId())
-                    .collect(Collectors.toList());
+    // Thống kê trong phạm vi của người dùng: sinh viên chỉ thấy đồ án của mình, giáo viên thấy đồ án mình phụ trách.
+    // Tài khoản chưa gắn với sinh viên/giảng viên nào thì không có đồ án
+    private ProjectStats loadStatsForCurrentUser(String keyword) throws SQLException {
+        if (session.isStudent()) {
+            return session.getStudentId() != null
+                    ? statsDAO.getStatsForStudent(session.getStudentId(), keyword) : emptyStats();
+        } else if (session.isTeacher()) {
+            return session.getTeacherId() != null
+                    ? statsDAO.getStatsForTeacher(session.getTeacherId(), keyword) : emptyStats();
         }
+        return statsDAO.getStats(keyword);
+    }
+
+    private static ProjectStats emptyStats() {
+        return new ProjectStats(0, new HashMap<>(), new HashMap<>(), null, null, null);
+    }
 
+    private void updateCharts(ProjectStats stats) {
         // --- Pie Chart: Thống kê trạng thái ---
-        Map<String, Long> statusCount = projects.stream()
-                .collect(Collectors.groupingBy(
-                        Project::getStatus,
-                        Collectors.counting()
-                ));
+        Map<String, Long> statusCount = stats.getStatusCounts();
 
         DefaultPieDataset pieDataset = new DefaultPieDataset();
         String[] statuses = {"CHO_DUYET", "DUYET", "TU_CHOI", "DA_NOP"};
@@ -232,7 +251,7 @@ public class ChartsPanel extends JPanel {
         DefaultTableModel tableModel = new DefaultTableModel(
                 new String[]{"Trạng thái", "Số lượng", "Tỷ lệ"}, 0
         );
-        long total = projects.size();
+        long total = stats.getTotalProjects();
         for (int i = 0; i < statuses.length; i++) {
             long count = statusCount.getOrDefault(statuses[i], 0L);
             double percentage = total > 0 ? (count * 100.0 / total) : 0;
@@ -243,5 +262,19 @@ public class ChartsPanel extends JPanel {
             });
         }
         summaryTable.setModel(tableModel);
+
+        // --- Bảng điểm trung bình và xếp loại ---
+        DefaultTableModel scoreModel = new DefaultTableModel(new String[]{"Chỉ số", "Giá trị"}, 0);
+        scoreModel.addRow(new Object[]{"Điểm quá trình trung bình", formatAverage(stats.getAverageProcessScore())});
+        scoreModel.addRow(new Object[]{"Điểm bảo vệ trung bình", formatAverage(stats.getAverageDefenseScore())});
+        scoreModel.addRow(new Object[]{"Điểm tổng kết trung bình", formatAverage(stats.getAverageFinalScore())});
+        for (Map.Entry<String, Long> entry : new TreeMap<>(stats.getGradeCounts()).entrySet()) {
+            scoreModel.addRow(new Object[]{"Xếp loại " + entry.getKey(), entry.getValue()});
+        }
+        scoreTable.setModel(scoreModel);
+    }
+
+    private String formatAverage(Double value) {
+        return value != null ? String.format("%.2f", value) : "-";
     }
 }
\ No newline at end of file
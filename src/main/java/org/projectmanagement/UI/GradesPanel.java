@@ -1,18 +1,23 @@
 package org.projectmanagement.UI;
 
+import org.projectmanagement.dao.GradeRecomputeJob;
 import org.projectmanagement.dao.ProjectDAO;
-import org.projectmanagement.dao.StudentDAO;
+import org.projectmanagement.dao.ScoreImporter;
 import org.projectmanagement.models.Project;
-import org.projectmanagement.models.Student;
+import org.projectmanagement.models.ProjectScoreView;
 import org.projectmanagement.models.User;
+import org.projectmanagement.models.UserSession;
 
+import javax.sql.DataSource;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
@@ -21,18 +26,19 @@ import java.util.concurrent.ExecutionException;
 public class GradesPanel extends JPanel {
     private ProjectDAO projectDAO;
     private User loggedUser;
-    private Connection connection;
+    private UserSession session;
+    private DataSource dataSource;
     private JTable gradesTable;
-    private JButton btnAddScore, btnEditScore;
+    private JButton btnAddScore, btnEditScore, btnImportScores, btnRecomputeGrades;
     private JTextField txtSearch;
     private JButton btnSearch, btnReset;
-    private List<Project> currentProjects; // Cache hiện tại
+    private ProjectTableModel gradesTableModel; // Danh sách dự án đang hiển thị
 
-    public GradesPanel(User user, Connection connection) {
-        this.loggedUser = user;
-        this.connection = connection;
-        this.projectDAO = new ProjectDAO(connection);
-        this.currentProjects = new ArrayList<>();
+    public GradesPanel(UserSession session, DataSource dataSource) {
+        this.session = session;
+        this.loggedUser = session.getUser();
+        this.dataSource = dataSource;
+        this.projectDAO = new ProjectDAO(dataSource);
         initComponents();
         loadGradesAsync();
     }
@@ -86,7 +92,21 @@ public class GradesPanel extends JPanel {
         mainPanel.add(searchPanel, BorderLayout.NORTH);
 
         // Grades table
-        gradesTable = new JTable();
+        gradesTableModel = new ProjectTableModel("ID", "Tên Đồ án", "Điểm Quá Trình", "Điểm Bảo Vệ", "Điểm Tổng Kết", "Xếp Loại") {
+            @Override
+            protected Object valueOf(Project p, int column) {
+                switch (column) {
+                    case 0: return p.getProjectId();
+                    case 1: return p.getTitle();
+                    case 2: return p.getProcessScore() != null ? String.format("%.2f", p.getProcessScore()) : "Chưa có";
+                    case 3: return p.getDefenseScore() != null ? String.format("%.2f", p.getDefenseScore()) : "Chưa có";
+                    case 4: return p.getFinalScore() != null ? String.format("%.2f", p.getFinalScore()) : "Chưa có";
+                    case 5: return p.getGrade() != null ? p.getGrade() : "Chưa có";
+                    default: return null;
+                }
+            }
+        };
+        gradesTable = new JTable(gradesTableModel);
         gradesTable.setRowHeight(30);
         gradesTable.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         gradesTable.setForeground(Color.BLACK);
@@ -96,6 +116,10 @@ public class GradesPanel extends JPanel {
         gradesTable.getTableHeader().setBackground(new Color(230, 230, 230));
         gradesTable.getTableHeader().setForeground(Color.BLACK);
         gradesTable.getTableHeader().setReorderingAllowed(false);
+        // Hide ID column but keep it for reference
+        gradesTable.getColumnModel().getColumn(0).setMinWidth(0);
+        gradesTable.getColumnModel().getColumn(0).setMaxWidth(0);
+        gradesTable.getColumnModel().getColumn(0).setWidth(0);
         JScrollPane scrollPane = new JScrollPane(gradesTable);
         mainPanel.add(scrollPane, BorderLayout.CENTER);
         add(mainPanel, BorderLayout.CENTER);
@@ -107,18 +131,32 @@ public class GradesPanel extends JPanel {
         if ("admin".equals(loggedUser.getRole()) || "teacher".equals(loggedUser.getRole())) {
             btnAddScore = new JButton("Thêm điểm");
             btnEditScore = new JButton("Sửa điểm");
+            btnImportScores = new JButton("Nhập điểm CSV");
             btnAddScore.setFont(new Font("Segoe UI", Font.PLAIN, 14));
             btnEditScore.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+            btnImportScores.setFont(new Font("Segoe UI", Font.PLAIN, 14));
             btnAddScore.setBackground(new Color(0, 123, 255));
             btnEditScore.setBackground(new Color(0, 123, 255));
+            btnImportScores.setBackground(new Color(0, 123, 255));
             btnAddScore.setForeground(Color.BLACK);
             btnEditScore.setForeground(Color.BLACK);
+            btnImportScores.setForeground(Color.BLACK);
 
             btnAddScore.addActionListener(e -> showAddScoreDialog());
             btnEditScore.addActionListener(e -> showEditScoreDialog());
+            btnImportScores.addActionListener(e -> importScoresFromCsv());
 
             buttonPanel.add(btnAddScore);
             buttonPanel.add(btnEditScore);
+            buttonPanel.add(btnImportScores);
+        }
+        if ("admin".equals(loggedUser.getRole())) {
+            btnRecomputeGrades = new JButton("Tính lại điểm");
+            btnRecomputeGrades.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+            btnRecomputeGrades.setBackground(new Color(0, 123, 255));
+            btnRecomputeGrades.setForeground(Color.BLACK);
+            btnRecomputeGrades.addActionListener(e -> recomputeAllGrades());
+            buttonPanel.add(btnRecomputeGrades);
         }
 
         add(buttonPanel, BorderLayout.SOUTH);
@@ -136,46 +174,13 @@ public class GradesPanel extends JPanel {
             @Override
             protected List<Project> doInBackground() throws SQLException {
                 // Force refresh from database
-                List<Project> projects = projectDAO.findAll();
-                List<Project> filteredProjects = new ArrayList<>();
-
-                if ("teacher".equals(loggedUser.getRole())) {
-                    int teacherId = getTeacherId();
-                    for (Project p : projects) {
-                        if (p.getTeacherId() == teacherId) {
-                            filteredProjects.add(p);
-                        }
-                    }
-                } else if ("user".equals(loggedUser.getRole())) {
-                    StudentDAO studentDAO = new StudentDAO(connection);
-                    List<Student> students = studentDAO.findAll();
-                    Student currentStudent = null;
-                    for (Student s : students) {
-                        if (s.getUserId() == loggedUser.getUserId()) {
-                            currentStudent = s;
-                            break;
-                        }
-                    }
-                    if (currentStudent != null) {
-                        int studentId = currentStudent.getStudentId();
-                        for (Project p : projects) {
-                            if (p.getStudentId() == studentId) {
-                                filteredProjects.add(p);
-                            }
-                        }
-                    }
-                } else {
-                    filteredProjects.addAll(projects);
-                }
-                return filteredProjects;
+                return findProjectsForCurrentUser(null);
             }
 
             @Override
             protected void done() {
                 try {
                     List<Project> projects = get();
-                    currentProjects.clear();
-                    currentProjects.addAll(projects);
                     updateTable(projects);
                 } catch (InterruptedException | ExecutionException e) {
                     JOptionPane.showMessageDialog(GradesPanel.this,
@@ -201,46 +206,13 @@ public class GradesPanel extends JPanel {
         SwingWorker<List<Project>, Void> worker = new SwingWorker<List<Project>, Void>() {
             @Override
             protected List<Project> doInBackground() throws SQLException {
-                List<Project> projects = projectDAO.searchByTitleOrStudentId(keyword);
-                List<Project> filteredProjects = new ArrayList<>();
-
-                if ("teacher".equals(loggedUser.getRole())) {
-                    int teacherId = getTeacherId();
-                    for (Project p : projects) {
-                        if (p.getTeacherId() == teacherId) {
-                            filteredProjects.add(p);
-                        }
-                    }
-                } else if ("user".equals(loggedUser.getRole())) {
-                    StudentDAO studentDAO = new StudentDAO(connection);
-                    List<Student> students = studentDAO.findAll();
-                    Student currentStudent = null;
-                    for (Student s : students) {
-                        if (s.getUserId() == loggedUser.getUserId()) {
-                            currentStudent = s;
-                            break;
-                        }
-                    }
-                    if (currentStudent != null) {
-                        int studentId = currentStudent.getStudentId();
-                        for (Project p : projects) {
-                            if (p.getStudentId() == studentId) {
-                                filteredProjects.add(p);
-                            }
-                        }
-                    }
-                } else {
-                    filteredProjects.addAll(projects);
-                }
-                return filteredProjects;
+                return findProjectsForCurrentUser(keyword);
             }
 
             @Override
             protected void done() {
                 try {
                     List<Project> projects = get();
-                    currentProjects.clear();
-                    currentProjects.addAll(projects);
                     updateTable(projects);
                     if (projects.isEmpty()) {
                         JOptionPane.showMessageDialog(GradesPanel.this,
@@ -256,36 +228,32 @@ public class GradesPanel extends JPanel {
         };
         worker.execute();
     }
+    // Lọc theo vai trò ngay trong SQL: giáo viên/sinh viên chỉ nhận dự án của mình (theo teacher_id/student_id
+    // trong phiên đăng nhập), admin nhận tất cả
+    private List<Project> findProjectsForCurrentUser(String keyword) throws SQLException {
+        if (session.isTeacher()) {
+            Integer teacherId = session.getTeacherId();
+            if (teacherId == null) {
+                return new ArrayList<>();
+            }
+            return keyword == null
+                    ? projectDAO.findByTeacherId(teacherId)
+                    : projectDAO.searchByTeacherId(teacherId, keyword);
+        } else if (session.isStudent()) {
+            Integer studentId = session.getStudentId();
+            if (studentId == null) {
+                return new ArrayList<>();
+            }
+            return keyword == null
+                    ? projectDAO.findByStudentId(studentId)
+                    : projectDAO.searchByStudentId(studentId, keyword);
+        }
+        return keyword == null ? projectDAO.findAll() : projectDAO.searchByTitleOrStudentId(keyword);
+    }
 //Cập nhật bảng giao diện với danh sách dự án.
-//Tạo dữ liệu bảng với các cột: ID, Tên đồ án, Điểm Quá Trình, Điểm Bảo Vệ, Điểm Tổng Kết, Xếp Loại.
+//Model tính giá trị ô khi cần vẽ; chỉ những dòng có điểm/xếp loại thay đổi mới được vẽ lại.
     private void updateTable(List<Project> projects) {
-        String[] columns = {"ID", "Tên Đồ án", "Điểm Quá Trình", "Điểm Bảo Vệ", "Điểm Tổng Kết", "Xếp Loại"};
-        Object[][] data = new Object[projects.size()][6];
-
-        for (int i = 0; i < projects.size(); i++) {
-            Project p = projects.get(i);
-            data[i] = new Object[]{
-                    p.getProjectId(),
-                    p.getTitle(),
-                    p.getProcessScore() != null ? String.format("%.2f", p.getProcessScore()) : "Chưa có",
-                    p.getDefenseScore() != null ? String.format("%.2f", p.getDefenseScore()) : "Chưa có",
-                    p.getFinalScore() != null ? String.format("%.2f", p.getFinalScore()) : "Chưa có",
-                    p.getGrade() != null ? p.getGrade() : "Chưa có"
-            };
-        }
-
-        DefaultTableModel model = new DefaultTableModel(data, columns) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        gradesTable.setModel(model);
-
-        // Hide ID column but keep it for reference
-        gradesTable.getColumnModel().getColumn(0).setMinWidth(0);
-        gradesTable.getColumnModel().getColumn(0).setMaxWidth(0);
-        gradesTable.getColumnModel().getColumn(0).setWidth(0);
+        gradesTableModel.setProjects(projects);
     }
 //Hiển thị hộp thoại để thêm điểm số cho dự án.
 //Kiểm tra quyền (giáo viên chỉ thêm điểm cho dự án của mình).
@@ -293,7 +261,7 @@ public class GradesPanel extends JPanel {
 //Lưu điểm vào cơ sở dữ liệu, thông báo thành công/thất bại và làm mới bảng.
     private void showAddScoreDialog() {
         // Check if there are any projects displayed
-        if (currentProjects.isEmpty()) {
+        if (gradesTableModel.getProjects().isEmpty()) {
             JOptionPane.showMessageDialog(this,
                     "Không có đồ án nào để thêm điểm. Vui lòng tải lại dữ liệu.",
                     "Thông báo",
@@ -319,7 +287,7 @@ public class GradesPanel extends JPanel {
         cbProject.setForeground(Color.BLACK);
 
         // Only add projects that are currently displayed in the table
-        for (Project p : currentProjects) {
+        for (Project p : gradesTableModel.getProjects()) {
             // Additional security check for teachers
             if ("teacher".equals(loggedUser.getRole())) {
                 int teacherId = getTeacherId();
@@ -406,13 +374,8 @@ public class GradesPanel extends JPanel {
                 }
 
                 // Find the selected project from current projects to verify ownership
-                Project selectedProject = null;
-                for (Project p : currentProjects) {
-                    if (p.getProjectId() == projectId) {
-                        selectedProject = p;
-                        break;
-                    }
-                }
+                int row = gradesTableModel.indexOf(projectId);
+                Project selectedProject = row >= 0 ? gradesTableModel.getProjectAt(row) : null;
 
                 if (selectedProject == null) {
                     JOptionPane.showMessageDialog(dialog, "Đồ án được chọn không tồn tại trong danh sách hiện tại.", "Lỗi", JOptionPane.ERROR_MESSAGE);
@@ -478,8 +441,8 @@ public class GradesPanel extends JPanel {
         int projectId = (Integer) gradesTable.getValueAt(selectedRow, 0);
 
         try {
-            // Get fresh data from database
-            Project selectedProject = projectDAO.findById(projectId);
+            // Get fresh data from database (chỉ các cột điểm)
+            ProjectScoreView selectedProject = projectDAO.findScoreById(projectId);
 
             if (selectedProject == null) {
                 JOptionPane.showMessageDialog(this, "Không tìm thấy đồ án.", "Lỗi", JOptionPane.ERROR_MESSAGE);
@@ -613,24 +576,121 @@ public class GradesPanel extends JPanel {
         }
     }
 
-    private int getTeacherId() {
-        try {
-            String sql = "SELECT teacher_id FROM teachers WHERE email = ?";
-            PreparedStatement pstmt = connection.prepareStatement(sql);
-            pstmt.setString(1, loggedUser.getEmail());
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("teacher_id");
+    // Nhập điểm hàng loạt từ file CSV (projectId, điểm quá trình, điểm bảo vệ).
+    // Giáo viên chỉ nhập được điểm cho đồ án mình phụ trách; các dòng lỗi được liệt kê sau khi nhập.
+    private void importScoresFromCsv() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("File CSV (*.csv)", "csv"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+
+        Integer teacherIdScope = null;
+        if ("teacher".equals(loggedUser.getRole())) {
+            int teacherId = getTeacherId();
+            if (teacherId == -1) {
+                JOptionPane.showMessageDialog(this, "Không tìm thấy thông tin giáo viên.", "Lỗi", JOptionPane.ERROR_MESSAGE);
+                return;
             }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Lỗi lấy teacher_id: " + ex.getMessage(), "Lỗi", JOptionPane.ERROR_MESSAGE);
+            teacherIdScope = teacherId;
+        }
+        Integer scope = teacherIdScope;
+
+        setButtonsEnabled(false);
+
+        SwingWorker<ScoreImporter.ImportResult, Void> worker = new SwingWorker<ScoreImporter.ImportResult, Void>() {
+            @Override
+            protected ScoreImporter.ImportResult doInBackground() throws IOException, SQLException {
+                try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    return new ScoreImporter(dataSource).importCsv(reader, scope);
+                }
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    showImportResult(get());
+                    loadGradesAsync();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(GradesPanel.this,
+                            "Lỗi nhập điểm: " + cause.getMessage(), "Lỗi", JOptionPane.ERROR_MESSAGE);
+                    setButtonsEnabled(true);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    // Tính lại điểm tổng kết và xếp loại của mọi đồ án theo công thức đang cấu hình (chỉ admin)
+    private void recomputeAllGrades() {
+        int confirm = JOptionPane.showConfirmDialog(this,
+                "Tính lại điểm tổng kết và xếp loại cho tất cả đồ án theo công thức hiện tại?",
+                "Xác nhận", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
         }
-        return -1;
+
+        setButtonsEnabled(false);
+
+        SwingWorker<GradeRecomputeJob.Result, Void> worker = new SwingWorker<GradeRecomputeJob.Result, Void>() {
+            @Override
+            protected GradeRecomputeJob.Result doInBackground() throws SQLException {
+                return new GradeRecomputeJob(dataSource).run();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    GradeRecomputeJob.Result result = get();
+                    showNotification("Đã cập nhật " + result.getUpdatedRows() + "/" + result.getScannedRows()
+                            + " đồ án.", "success");
+                    loadGradesAsync();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(GradesPanel.this,
+                            "Lỗi tính lại điểm: " + cause.getMessage(), "Lỗi", JOptionPane.ERROR_MESSAGE);
+                    setButtonsEnabled(true);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showImportResult(ScoreImporter.ImportResult result) {
+        String summary = "Đã cập nhật " + result.getUpdatedRows() + "/" + result.getTotalRows() + " dòng.";
+        if (result.getErrors().isEmpty()) {
+            showNotification(summary, "success");
+            return;
+        }
+
+        StringBuilder details = new StringBuilder();
+        for (ScoreImporter.RowError error : result.getErrors()) {
+            details.append(error).append('\n');
+        }
+        JTextArea txtErrors = new JTextArea(details.toString());
+        txtErrors.setEditable(false);
+        txtErrors.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        JScrollPane scrollPane = new JScrollPane(txtErrors);
+        scrollPane.setPreferredSize(new Dimension(500, 250));
+
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        panel.add(new JLabel(summary + " " + result.getErrors().size() + " dòng lỗi:"), BorderLayout.NORTH);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        JOptionPane.showMessageDialog(this, panel, "Kết quả nhập điểm", JOptionPane.WARNING_MESSAGE);
+    }
+
+    // teacher_id của giáo viên đăng nhập (đã tra lúc đăng nhập), -1 nếu tài khoản không gắn với giảng viên nào
+    private int getTeacherId() {
+        return session.getTeacherId() != null ? session.getTeacherId() : -1;
     }
 
     private void setButtonsEnabled(boolean enabled) {
         if (btnAddScore != null) btnAddScore.setEnabled(enabled);
         if (btnEditScore != null) btnEditScore.setEnabled(enabled);
+        if (btnImportScores != null) btnImportScores.setEnabled(enabled);
+        if (btnRecomputeGrades != null) btnRecomputeGrades.setEnabled(enabled);
         btnSearch.setEnabled(enabled);
         btnReset.setEnabled(enabled);
     }
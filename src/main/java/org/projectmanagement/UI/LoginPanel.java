@@ -1,14 +1,16 @@
 package org.projectmanagement.UI;
 
-import org.projectmanagement.dao.UserDAO;
-import org.projectmanagement.models.User;
+import org.projectmanagement.dao.AuthService;
+import org.projectmanagement.models.UserSession;
 
 import javax.imageio.ImageIO;
+import javax.sql.DataSource;
 import javax.swing.*;
 import javax.swing.border.AbstractBorder;
 import java.awt.*;
 import java.awt.event.*;
-import java.sql.Connection;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 public class LoginPanel extends JPanel {
     private JTextField txtEmail;
@@ -16,12 +18,12 @@ public class LoginPanel extends JPanel {
     private JButton btnLogin;
     private JButton btnRegister;
     private JLabel lblMessage;
-    private UserDAO userDAO;
-    private Connection connection;
+    private AuthService authService;
+    private DataSource dataSource;
 
-    public LoginPanel(Connection connection) {
-        this.connection = connection;
-        this.userDAO = new UserDAO(connection);
+    public LoginPanel(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.authService = AuthService.shared(dataSource);
         initComponents();
     }
 
@@ -293,19 +295,31 @@ public class LoginPanel extends JPanel {
             return;
         }
 
-        try {
-            User user = userDAO.loginByEmail(email, password);
-            if (user != null) {
-                showMessage("Đăng nhập thành công! Chào mừng " + user.getFullName(), false);
-                firePropertyChange("loginSuccess", null, user);
+        // Kiểm tra mật khẩu chạy trên pool của AuthService; giao diện chỉ khóa nút đăng nhập trong lúc chờ
+        btnLogin.setEnabled(false);
+        showMessage("Đang đăng nhập...", false);
+        authService.loginByEmail(email, password).whenComplete((session, error) ->
+                SwingUtilities.invokeLater(() -> onLoginFinished(session, error)));
+    }
+
+    private void onLoginFinished(UserSession session, Throwable error) {
+        btnLogin.setEnabled(true);
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof RejectedExecutionException) {
+                showMessage("Hệ thống đang bận, vui lòng thử lại sau giây lát.", true);
+                System.err.println(authService.metrics());
             } else {
-                showMessage("Email hoặc mật khẩu không đúng.", true);
-                txtPassword.setText("");
-                txtEmail.requestFocus();
+                showMessage("Lỗi: " + cause.getMessage(), true);
+                cause.printStackTrace();
             }
-        } catch (Exception ex) {
-            showMessage("Lỗi: " + ex.getMessage(), true);
-            ex.printStackTrace();
+        } else if (session != null) {
+            showMessage("Đăng nhập thành công! Chào mừng " + session.getUser().getFullName(), false);
+            firePropertyChange("loginSuccess", null, session);
+        } else {
+            showMessage("Email hoặc mật khẩu không đúng.", true);
+            txtPassword.setText("");
+            txtEmail.requestFocus();
         }
     }
 
@@ -1,18 +1,18 @@
 package org.projectmanagement.UI;
 
-import org.projectmanagement.models.User;
+import org.projectmanagement.models.UserSession;
 import org.projectmanagement.util.DBConnection;
 
+import javax.sql.DataSource;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
-import java.sql.Connection;
 import java.sql.SQLException;
 
 public class MainFrame extends JFrame {
     private RegisterPanel registerPanel;
-    private Connection connection;
+    private DataSource dataSource;
     private LoginPanel loginPanel;
     private MainPanel mainPanel;
     private JPanel mainContainer;
@@ -21,8 +21,8 @@ public class MainFrame extends JFrame {
     private static final Color BACKGROUND_COLOR = new Color(245, 247, 250);
     private static final Color ACCENT_COLOR = new Color(79, 172, 254);
 
-    public MainFrame(Connection connection) {
-        this.connection = connection;
+    public MainFrame(DataSource dataSource) {
+        this.dataSource = dataSource;
         initUI();
         setupWindowProperties();
     }
@@ -77,8 +77,8 @@ public class MainFrame extends JFrame {
         mainContainer.setBackground(BACKGROUND_COLOR);
         mainContainer.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 0));
 
-        loginPanel = new LoginPanel(connection);
-        registerPanel = new RegisterPanel(connection);
+        loginPanel = new LoginPanel(dataSource);
+        registerPanel = new RegisterPanel(dataSource);
 
         // Add smooth transition effect
         mainContainer.add(createTransitionPanel(loginPanel), BorderLayout.CENTER);
@@ -114,8 +114,8 @@ public class MainFrame extends JFrame {
     private void setupEventListeners() {
         // Login thành công với animation
         loginPanel.addPropertyChangeListener("loginSuccess", evt -> {
-            User user = (User) evt.getNewValue();
-            SwingUtilities.invokeLater(() -> onLoginSuccess(user));
+            UserSession session = (UserSession) evt.getNewValue();
+            SwingUtilities.invokeLater(() -> onLoginSuccess(session));
         });
 
         // Chuyển sang giao diện đăng ký với transition
@@ -199,9 +199,9 @@ public class MainFrame extends JFrame {
         transitionTimer.start();
     }
 
-    private void onLoginSuccess(User user) {
+    private void onLoginSuccess(UserSession session) {
         // Create main panel with modern styling
-        mainPanel = new MainPanel(user, connection);
+        mainPanel = new MainPanel(session, dataSource);
 
         // Setup logout listener with smooth transition
         mainPanel.setLogoutListener(() -> {
@@ -258,7 +258,8 @@ public class MainFrame extends JFrame {
         System.setProperty("sun.java2d.opengl", "true");
 
         try {
-            Connection conn = DBConnection.getConnection();
+            DataSource dataSource = DBConnection.getDataSource();
+            Runtime.getRuntime().addShutdownHook(new Thread(DBConnection::shutdown));
 
             SwingUtilities.invokeLater(() -> {
                 try {
@@ -271,7 +272,7 @@ public class MainFrame extends JFrame {
                         splash.dispose();
 
                         // Create and show main frame
-                        MainFrame frame = new MainFrame(conn);
+                        MainFrame frame = new MainFrame(dataSource);
 
                         // Show frame without opacity animation (since it causes issues with decorated frames)
                         frame.setVisible(true);
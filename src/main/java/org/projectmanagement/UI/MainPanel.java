@@ -1,8 +1,10 @@
 package org.projectmanagement.UI;
 
 import org.projectmanagement.models.User;
+import org.projectmanagement.models.UserSession;
 
 import javax.imageio.ImageIO;
+import javax.sql.DataSource;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
@@ -11,18 +13,19 @@ import java.awt.event.MouseEvent;
 import java.awt.geom.RoundRectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.sql.Connection;
 import java.util.HashMap;
 import java.util.Map;
 
 public class MainPanel extends JPanel {
     private User loggedUser;
+    // Phiên đăng nhập dùng chung cho các panel cần lọc theo sinh viên/giảng viên
+    private UserSession session;
     private JPanel contentPanel;
     private JLabel lblFullName;
     private JLabel lblRole;
     private JLabel lblAvatar;
     private JButton btnLogout;
-    private Connection connection;
+    private DataSource dataSource;
     private MainFrame.LogoutListener logoutListener;
 
     // Modern color scheme - Enhanced contrast
@@ -43,9 +46,10 @@ public class MainPanel extends JPanel {
     private String activeMenu = "Projects";
     private Map<String, JButton> menuButtons = new HashMap<>();
 
-    public MainPanel(User user, Connection connection) {
-        this.loggedUser = user;
-        this.connection = connection;
+    public MainPanel(UserSession session, DataSource dataSource) {
+        this.session = session;
+        this.loggedUser = session.getUser();
+        this.dataSource = dataSource;
         initComponents();
         setupResponsiveLayout();
     }
@@ -445,30 +449,30 @@ public class MainPanel extends JPanel {
 
         switch (menu) {
             case "Projects":
-                contentWrapper.add(new ProjectsPanel(loggedUser, connection), BorderLayout.CENTER);
+                contentWrapper.add(new ProjectsPanel(session, dataSource), BorderLayout.CENTER);
                 break;
             case "Students":
                 if ("admin".equals(loggedUser.getRole())) {
-                    contentWrapper.add(new StudentsPanel(loggedUser, connection), BorderLayout.CENTER);
+                    contentWrapper.add(new StudentsPanel(loggedUser, dataSource), BorderLayout.CENTER);
                 } else {
                     contentWrapper.add(createAccessDeniedPanel("Students"), BorderLayout.CENTER);
                 }
                 break;
             case "Teachers":
                 if ("admin".equals(loggedUser.getRole())) {
-                    contentWrapper.add(new TeachersPanel(loggedUser, connection), BorderLayout.CENTER);
+                    contentWrapper.add(new TeachersPanel(loggedUser, dataSource), BorderLayout.CENTER);
                 } else {
                     contentWrapper.add(createAccessDeniedPanel("Teachers"), BorderLayout.CENTER);
                 }
                 break;
             case "Grades":
-                contentWrapper.add(new GradesPanel(loggedUser, connection), BorderLayout.CENTER);
+                contentWrapper.add(new GradesPanel(session, dataSource), BorderLayout.CENTER);
                 break;
             case "Charts":
-                contentWrapper.add(new ChartsPanel(loggedUser, connection), BorderLayout.CENTER);
+                contentWrapper.add(new ChartsPanel(session, dataSource), BorderLayout.CENTER);
                 break;
             case "Change Password":
-                contentWrapper.add(new ChangePasswordPanel(loggedUser, connection), BorderLayout.CENTER);
+                contentWrapper.add(new ChangePasswordPanel(loggedUser, dataSource), BorderLayout.CENTER);
                 break;
             default:
                 contentWrapper.add(createWelcomePanel(), BorderLayout.CENTER);
@@ -0,0 +1,120 @@
+package org.projectmanagement.UI;
+
+import javax.swing.*;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.ToIntFunction;
+
+// Tải bảng theo từng trang keyset: trang đầu khi reset(), các trang sau khi người dùng cuộn gần cuối bảng.
+// Mỗi trang được truy vấn trong SwingWorker; chỉ một trang được tải tại một thời điểm.
+public class PagedTableLoader<T> {
+    // Tải trang kế tiếp khi còn cách cuối bảng ít hơn số pixel này
+    private static final int SCROLL_THRESHOLD_PX = 150;
+
+    public interface PageFetcher<T> {
+        List<T> fetchPage(int afterId, int pageSize) throws SQLException;
+    }
+
+    public interface PageListener<T> {
+        // firstPage = true: thay toàn bộ dữ liệu bảng; false: nối thêm vào cuối bảng
+        void onPage(List<T> page, boolean firstPage);
+
+        void onError(Exception e);
+    }
+
+    private final JScrollPane scrollPane;
+    private final int pageSize;
+    private final PageFetcher<T> fetcher;
+    private final ToIntFunction<T> idOf;
+    private final PageListener<T> listener;
+
+    // Các trường dưới đây chỉ được truy cập trên EDT
+    private int lastId = 0;
+    private boolean hasMore = false;
+    private boolean loading = false;
+    // Tăng mỗi lần reset()/stop() để bỏ qua kết quả của các worker cũ
+    private int generation = 0;
+
+    public PagedTableLoader(JScrollPane scrollPane, int pageSize, PageFetcher<T> fetcher,
+                            ToIntFunction<T> idOf, PageListener<T> listener) {
+        this.scrollPane = scrollPane;
+        this.pageSize = pageSize;
+        this.fetcher = fetcher;
+        this.idOf = idOf;
+        this.listener = listener;
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            if (!e.getValueIsAdjusting() && isNearBottom()) {
+                loadNextPage();
+            }
+        });
+    }
+
+    // Tải lại từ trang đầu
+    public void reset() {
+        generation++;
+        lastId = 0;
+        hasMore = true;
+        loading = false;
+        loadNextPage();
+    }
+
+    // Ngừng tải thêm, ví dụ khi bảng đang hiển thị kết quả tìm kiếm
+    public void stop() {
+        generation++;
+        hasMore = false;
+        loading = false;
+    }
+
+    private void loadNextPage() {
+        if (loading || !hasMore) {
+            return;
+        }
+        loading = true;
+        final int requestGeneration = generation;
+        final int afterId = lastId;
+        SwingWorker<List<T>, Void> worker = new SwingWorker<List<T>, Void>() {
+            @Override
+            protected List<T> doInBackground() throws SQLException {
+                return fetcher.fetchPage(afterId, pageSize);
+            }
+
+            @Override
+            protected void done() {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading = false;
+                try {
+                    List<T> page = get();
+                    hasMore = page.size() == pageSize;
+                    if (!page.isEmpty()) {
+                        lastId = idOf.applyAsInt(page.get(page.size() - 1));
+                    }
+                    listener.onPage(page, afterId == 0);
+                    // Trang vừa tải chưa lấp đầy khung nhìn thì không có sự kiện cuộn, tải tiếp ngay
+                    SwingUtilities.invokeLater(() -> {
+                        if (requestGeneration == generation && !fillsViewport()) {
+                            loadNextPage();
+                        }
+                    });
+                } catch (InterruptedException | ExecutionException e) {
+                    hasMore = false;
+                    listener.onError(e);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    // Dựa vào preferredSize của bảng (tính ngay từ số dòng) thay vì scrollbar, vì layout có thể chưa cập nhật
+    private boolean fillsViewport() {
+        JViewport viewport = scrollPane.getViewport();
+        return viewport.getView().getPreferredSize().height > viewport.getExtentSize().height;
+    }
+
+    private boolean isNearBottom() {
+        JScrollBar bar = scrollPane.getVerticalScrollBar();
+        return bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - SCROLL_THRESHOLD_PX;
+    }
+}
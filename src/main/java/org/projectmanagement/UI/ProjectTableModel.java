@@ -0,0 +1,169 @@
+package org.projectmanagement.UI;
+
+import org.projectmanagement.models.Project;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// TableModel bọc trực tiếp danh sách Project: giá trị ô chỉ được tính khi JTable cần vẽ ô đó.
+// Lớp con khai báo cột qua valueOf(); các thao tác cập nhật chỉ phát sự kiện cho những dòng thay đổi.
+public abstract class ProjectTableModel extends AbstractTableModel {
+    // Khi số dòng thay đổi vượt quá tỉ lệ này thì vẽ lại cả bảng thay vì phát sự kiện từng dòng
+    private static final double FULL_REFRESH_RATIO = 0.5;
+
+    private final String[] columns;
+    private final List<Project> projects = new ArrayList<>();
+    // project_id -> chỉ số dòng, để tìm dòng cần cập nhật mà không phải duyệt cả danh sách
+    private final Map<Integer, Integer> rowById = new HashMap<>();
+
+    protected ProjectTableModel(String... columns) {
+        this.columns = columns;
+    }
+
+    // Giá trị hiển thị của dự án tại cột column
+    protected abstract Object valueOf(Project project, int column);
+
+    @Override
+    public int getRowCount() {
+        return projects.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return valueOf(projects.get(rowIndex), columnIndex);
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+
+    @Override
+    public void setValueAt(Object value, int rowIndex, int columnIndex) {
+        // Dữ liệu chỉ thay đổi qua các phương thức cập nhật theo Project bên dưới
+    }
+
+    public Project getProjectAt(int rowIndex) {
+        return projects.get(rowIndex);
+    }
+
+    public List<Project> getProjects() {
+        return Collections.unmodifiableList(projects);
+    }
+
+    // Chỉ số dòng của dự án, -1 nếu không có trong bảng
+    public int indexOf(int projectId) {
+        Integer row = rowById.get(projectId);
+        return row != null ? row : -1;
+    }
+
+    // Thay toàn bộ dữ liệu. So sánh theo vị trí với dữ liệu cũ: dòng nào hiển thị giống hệt thì giữ nguyên,
+    // chỉ phát sự kiện cập nhật/thêm/xóa cho phần khác biệt
+    public void setProjects(List<Project> fresh) {
+        int oldSize = projects.size();
+        int newSize = fresh.size();
+        int overlap = Math.min(oldSize, newSize);
+
+        List<Integer> changedRows = new ArrayList<>();
+        for (int i = 0; i < overlap; i++) {
+            if (!sameRow(projects.get(i), fresh.get(i))) {
+                changedRows.add(i);
+            }
+        }
+
+        projects.clear();
+        projects.addAll(fresh);
+        reindexFrom(0);
+
+        if (changedRows.size() > Math.max(oldSize, newSize) * FULL_REFRESH_RATIO) {
+            fireTableDataChanged();
+            return;
+        }
+        for (int row : changedRows) {
+            fireTableRowsUpdated(row, row);
+        }
+        if (newSize > oldSize) {
+            fireTableRowsInserted(oldSize, newSize - 1);
+        } else if (newSize < oldSize) {
+            fireTableRowsDeleted(newSize, oldSize - 1);
+        }
+    }
+
+    // Nối thêm các dự án vào cuối bảng (tải trang tiếp theo)
+    public void appendProjects(List<Project> more) {
+        if (more.isEmpty()) {
+            return;
+        }
+        int first = projects.size();
+        projects.addAll(more);
+        reindexFrom(first);
+        fireTableRowsInserted(first, projects.size() - 1);
+    }
+
+    // Thay dòng có cùng project_id; trả về false nếu dự án không có trong bảng
+    public boolean updateProject(Project project) {
+        int row = indexOf(project.getProjectId());
+        if (row < 0) {
+            return false;
+        }
+        projects.set(row, project);
+        fireTableRowsUpdated(row, row);
+        return true;
+    }
+
+    // Chèn dự án vào vị trí chỉ định
+    public void insertProject(int row, Project project) {
+        projects.add(row, project);
+        reindexFrom(row);
+        fireTableRowsInserted(row, row);
+    }
+
+    public boolean removeProject(int projectId) {
+        int row = indexOf(projectId);
+        if (row < 0) {
+            return false;
+        }
+        projects.remove(row);
+        rowById.remove(projectId);
+        reindexFrom(row);
+        fireTableRowsDeleted(row, row);
+        return true;
+    }
+
+    private void reindexFrom(int from) {
+        if (from == 0) {
+            rowById.clear();
+        }
+        for (int i = from; i < projects.size(); i++) {
+            rowById.put(projects.get(i).getProjectId(), i);
+        }
+    }
+
+    // Hai dự án hiển thị giống hệt nhau trên mọi cột
+    private boolean sameRow(Project a, Project b) {
+        if (a.getProjectId() != b.getProjectId()) {
+            return false;
+        }
+        for (int c = 0; c < columns.length; c++) {
+            if (!Objects.equals(valueOf(a, c), valueOf(b, c))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,51 +1,59 @@
 package org.projectmanagement.UI;
 
 import org.projectmanagement.dao.ProjectDAO;
-import org.projectmanagement.dao.StudentDAO;
-import org.projectmanagement.dao.TeacherDAO;
+import org.projectmanagement.dao.ReferenceDataCache;
 import org.projectmanagement.models.Project;
 import org.projectmanagement.models.Student;
 import org.projectmanagement.models.Teacher;
 import org.projectmanagement.models.User;
+import org.projectmanagement.models.UserSession;
+import org.projectmanagement.socket.ProjectChangeEvent;
 import org.projectmanagement.socket.ProjectSocketClient;
 import org.projectmanagement.socket.SocketEventListener;
+import org.projectmanagement.util.DBConnection;
 
+import javax.sql.DataSource;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.sql.Connection;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 public class ProjectsPanel extends JPanel implements SocketEventListener {
     private ProjectDAO projectDAO;
     private User loggedUser;
-    private Connection connection;
+    private UserSession session;
+    private DataSource dataSource;
     private JTable projectTable;
+    private ProjectTableModel projectTableModel;
     private JButton btnAdd, btnEdit, btnDelete, btnSearch, btnReset;
     private JTextField txtSearch;
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
+    // Số dự án mỗi lần tải khi cuộn bảng
+    private static final int PAGE_SIZE = 100;
+    private PagedTableLoader<Project> projectPager;
 
     private ProjectSocketClient socketClient;
     private JLabel statusLabel;
     private boolean isSocketConnected = false;
 
-    public ProjectsPanel(User user, Connection connection) {
-        this.loggedUser = user;
-        this.connection = connection;
-        this.projectDAO = new ProjectDAO(connection);
+    public ProjectsPanel(UserSession session, DataSource dataSource) {
+        this.session = session;
+        this.loggedUser = session.getUser();
+        this.dataSource = dataSource;
+        this.projectDAO = new ProjectDAO(dataSource);
         initSocketClient();
         initComponents();
         loadProjectsAsync();
@@ -57,6 +65,9 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
             socketClient.setOnNotificationReceived(message -> onNotificationReceived(message.split(": ", 2)[1], message.split(": ", 2)[0]));
             socketClient.setOnFileUploadProgress(progress -> onFileUploadProgress(Integer.parseInt(progress)));
             socketClient.setOnFileDownloadProgress(progress -> onFileDownloadProgress(Integer.parseInt(progress)));
+            // Thay đổi đồ án từ server: vá đúng dòng; chỉ tải lại toàn bộ khi lỡ thông báo
+            socketClient.setOnProjectChanged(this::applyProjectChange);
+            socketClient.setOnProjectsOutOfSync(this::loadProjectsAsync);
             socketClient.connect(String.valueOf(loggedUser.getUserId())).thenAccept(connected -> {
                 SwingUtilities.invokeLater(() -> {
                     if (connected) {
@@ -136,7 +147,34 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
         mainPanel.add(searchPanel, BorderLayout.NORTH);
 
         // Project table
-        projectTable = new JTable();
+        projectTableModel = new ProjectTableModel("ID", "Tiêu đề", "Mô tả", "Ngày bắt đầu", "Ngày kết thúc",
+                "Ngày nộp", "Trạng thái", "File báo cáo", "Sinh viên", "Giảng viên", "Nhận xét", "Hành động") {
+            @Override
+            protected Object valueOf(Project p, int column) {
+                switch (column) {
+                    case 0: return p.getProjectId();
+                    case 1: return p.getTitle();
+                    case 2: return p.getDescription();
+                    case 3: return p.getNgayBatDau() != null ? DATE_FORMAT.format(p.getNgayBatDau()) : "Chưa đặt";
+                    case 4: return p.getNgayKetThuc() != null ? DATE_FORMAT.format(p.getNgayKetThuc()) : "Chưa đặt";
+                    case 5: return p.getNgayNop() != null ? DATE_FORMAT.format(p.getNgayNop()) : "Chưa nộp";
+                    case 6: return p.getStatus();
+                    case 7: return p.getLatestFilePath();
+                    case 8: return p.getStudentName() != null ? p.getStudentName() : "N/A";
+                    case 9: return p.getTeacherName() != null ? p.getTeacherName() : "N/A";
+                    case 10: return p.getLatestComment() != null ? p.getLatestComment() : "Chưa có nhận xét";
+                    // Nút tải xuống: ButtonRenderer vô hiệu hóa nút khi giá trị rỗng
+                    case 11: return p.getLatestFilePath() != null && !p.getLatestFilePath().isEmpty() ? "Tải xuống" : null;
+                    default: return null;
+                }
+            }
+
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return column == 11;
+            }
+        };
+        projectTable = new JTable(projectTableModel);
         projectTable.setRowHeight(30);
         projectTable.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         projectTable.setForeground(Color.BLACK);
@@ -147,9 +185,29 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
         projectTable.getTableHeader().setForeground(Color.BLACK);
         projectTable.getTableHeader().setReorderingAllowed(false);
         projectTable.setDefaultRenderer(Object.class, new CustomTableCellRenderer());
+        projectTable.getColumnModel().getColumn(11).setCellRenderer(new ButtonRenderer());
+        projectTable.getColumnModel().getColumn(11).setCellEditor(new ButtonEditor(new JCheckBox(), this::downloadFileViaSocket));
+        projectTable.getColumnModel().getColumn(10).setPreferredWidth(200);
 
         JScrollPane scrollPane = new JScrollPane(projectTable);
         mainPanel.add(scrollPane, BorderLayout.CENTER);
+        projectPager = new PagedTableLoader<>(scrollPane, PAGE_SIZE, this::findPageForCurrentUser,
+                Project::getProjectId, new PagedTableLoader.PageListener<Project>() {
+                    @Override
+                    public void onPage(List<Project> page, boolean firstPage) {
+                        if (firstPage) {
+                            updateTable(page);
+                        } else {
+                            appendToTable(page);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        JOptionPane.showMessageDialog(ProjectsPanel.this,
+                                "Lỗi tải dữ liệu: " + e.getMessage(), "Lỗi", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
         add(mainPanel, BorderLayout.CENTER);
 
         // Button panel
@@ -232,9 +290,6 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
     public void onNotificationReceived(String message, String type) {
         SwingUtilities.invokeLater(() -> {
             showNotification(message, type);
-            if (type.contains("project")) {
-                loadProjectsAsync();
-            }
         });
     }
 
@@ -283,60 +338,9 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
         timer.start();
         dialog.setVisible(true);
     }
-//Sử dụng SwingWorker để thực hiện truy vấn cơ sở dữ liệu trong thread nền, đảm bảo UI vẫn phản hồi.
+//Tải lại bảng từ trang đầu; các trang sau được tải trong SwingWorker khi người dùng cuộn xuống cuối bảng.
     private void loadProjectsAsync() {
-        SwingWorker<List<Project>, Void> worker = new SwingWorker<List<Project>, Void>() {
-            @Override
-            protected List<Project> doInBackground() throws SQLException {
-                synchronized (projectDAO) {
-                    List<Project> projects = projectDAO.findAll();
-                    if ("user".equals(loggedUser.getRole())) {
-                        StudentDAO studentDAO = new StudentDAO(connection);
-                        List<Student> students = studentDAO.findAll();
-                        Student currentStudent = students.stream()
-                                .filter(s -> s.getUserId() == loggedUser.getUserId())
-                                .findFirst()
-                                .orElse(null);
-                        if (currentStudent != null) {
-                            final int studentId = currentStudent.getStudentId();
-                            projects = projects.stream()
-                                    .filter(p -> p.getStudentId() == studentId)
-                                    .collect(Collectors.toList());
-                        } else {
-                            projects = new ArrayList<>();
-                        }
-                    } else if ("teacher".equals(loggedUser.getRole())) {
-                        TeacherDAO teacherDAO = new TeacherDAO(connection);
-                        List<Teacher> teachers = teacherDAO.findAll();
-                        Teacher currentTeacher = teachers.stream()
-                                .filter(t -> t.getEmail().equals(loggedUser.getEmail()))
-                                .findFirst()
-                                .orElse(null);
-                        if (currentTeacher != null) {
-                            final int teacherId = currentTeacher.getTeacherId();
-                            projects = projects.stream()
-                                    .filter(p -> p.getTeacherId() == teacherId)
-                                    .collect(Collectors.toList());
-                        } else {
-                            projects = new ArrayList<>();
-                        }
-                    }
-                    return projects;
-                }
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    List<Project> projects = get();
-                    updateTable(projects);
-                } catch (InterruptedException | ExecutionException e) {
-                    JOptionPane.showMessageDialog(ProjectsPanel.this,
-                            "Lỗi tải dữ liệu: " + e.getMessage(), "Lỗi", JOptionPane.ERROR_MESSAGE);
-                }
-            }
-        };
-        worker.execute();
+        projectPager.reset();
     }
 
     private void searchProjects() {
@@ -346,45 +350,13 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
                     "Thông báo", JOptionPane.WARNING_MESSAGE);
             return;
         }
+        // Kết quả tìm kiếm hiển thị đầy đủ, không tải thêm trang khi cuộn
+        projectPager.stop();
 
         SwingWorker<List<Project>, Void> worker = new SwingWorker<List<Project>, Void>() {
             @Override
             protected List<Project> doInBackground() throws Exception {
-                synchronized (projectDAO) {
-                    List<Project> projects = projectDAO.searchByTitleOrStudentId(keyword);
-                    if ("user".equals(loggedUser.getRole())) {
-                        StudentDAO studentDAO = new StudentDAO(connection);
-                        List<Student> students = studentDAO.findAll();
-                        Student currentStudent = students.stream()
-                                .filter(s -> s.getUserId() == loggedUser.getUserId())
-                                .findFirst()
-                                .orElse(null);
-                        if (currentStudent != null) {
-                            final int studentId = currentStudent.getStudentId();
-                            projects = projects.stream()
-                                    .filter(p -> p.getStudentId() == studentId)
-                                    .collect(Collectors.toList());
-                        } else {
-                            projects = new ArrayList<>();
-                        }
-                    } else if ("teacher".equals(loggedUser.getRole())) {
-                        TeacherDAO teacherDAO = new TeacherDAO(connection);
-                        List<Teacher> teachers = teacherDAO.findAll();
-                        Teacher currentTeacher = teachers.stream()
-                                .filter(t -> t.getEmail().equals(loggedUser.getEmail()))
-                                .findFirst()
-                                .orElse(null);
-                        if (currentTeacher != null) {
-                            final int teacherId = currentTeacher.getTeacherId();
-                            projects = projects.stream()
-                                    .filter(p -> p.getTeacherId() == teacherId)
-                                    .collect(Collectors.toList());
-                        } else {
-                            projects = new ArrayList<>();
-                        }
-                    }
-                    return projects;
-                }
+                return searchProjectsForCurrentUser(keyword);
             }
 
             @Override
@@ -405,50 +377,52 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
         worker.execute();
     }
 
-    private void updateTable(List<Project> projects) {
-        String[] columns = {"ID", "Tiêu đề", "Mô tả", "Ngày bắt đầu", "Ngày kết thúc",
-                "Ngày nộp", "Trạng thái", "File báo cáo", "Sinh viên", "Giảng viên", "Nhận xét", "Hành động"};
-        Object[][] data = new Object[projects.size()][12];
-
-        for (int i = 0; i < projects.size(); i++) {
-            Project p = projects.get(i);
-            JButton btnDownload = new JButton("Tải xuống");
-            btnDownload.setForeground(Color.BLACK);
-            btnDownload.setEnabled(p.getLatestFilePath() != null && !p.getLatestFilePath().isEmpty());
-            btnDownload.addActionListener(e -> downloadFileViaSocket(p.getLatestFilePath()));
-
-            data[i] = new Object[]{
-                    p.getProjectId(),
-                    p.getTitle(),
-                    p.getDescription(),
-                    p.getNgayBatDau() != null ? DATE_FORMAT.format(p.getNgayBatDau()) : "Chưa đặt",
-                    p.getNgayKetThuc() != null ? DATE_FORMAT.format(p.getNgayKetThuc()) : "Chưa đặt",
-                    p.getNgayNop() != null ? DATE_FORMAT.format(p.getNgayNop()) : "Chưa nộp",
-                    p.getStatus(),
-                    p.getLatestFilePath(),
-                    p.getStudentName() != null ? p.getStudentName() : "N/A",
-                    p.getTeacherName() != null ? p.getTeacherName() : "N/A",
-                    p.getLatestComment() != null ? p.getLatestComment() : "Chưa có nhận xét",
-                    btnDownload
-            };
+    // Tìm kiếm dự án trong phạm vi của người dùng hiện tại (student_id/teacher_id trong phiên đăng nhập);
+    // tài khoản chưa gắn với sinh viên/giảng viên nào thì không có dự án
+    private List<Project> searchProjectsForCurrentUser(String keyword) throws SQLException {
+        if (session.isStudent()) {
+            return session.getStudentId() != null
+                    ? projectDAO.searchByStudentId(session.getStudentId(), keyword) : new ArrayList<>();
+        } else if (session.isTeacher()) {
+            return session.getTeacherId() != null
+                    ? projectDAO.searchByTeacherId(session.getTeacherId(), keyword) : new ArrayList<>();
         }
+        return projectDAO.searchByTitleOrStudentId(keyword);
+    }
 
-        DefaultTableModel model = new DefaultTableModel(data, columns) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 11;
-            }
+    // Một trang dự án trong phạm vi của người dùng hiện tại, seek theo project_id
+    private List<Project> findPageForCurrentUser(int afterProjectId, int pageSize) throws SQLException {
+        if (session.isStudent()) {
+            return session.getStudentId() != null
+                    ? projectDAO.findPageAfterByStudentId(session.getStudentId(), afterProjectId, pageSize)
+                    : new ArrayList<>();
+        } else if (session.isTeacher()) {
+            return session.getTeacherId() != null
+                    ? projectDAO.findPageAfterByTeacherId(session.getTeacherId(), afterProjectId, pageSize)
+                    : new ArrayList<>();
+        }
+        return projectDAO.findPageAfter(afterProjectId, pageSize);
+    }
 
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                return columnIndex == 11 ? JButton.class : Object.class;
-            }
-        };
+    // Áp thay đổi từ thông báo socket lên dòng tương ứng. Dự án chưa có trong bảng (trang chưa tải,
+    // ngoài phạm vi người dùng) thì bỏ qua, lần tải trang sau sẽ lấy dữ liệu mới từ database
+    private void applyProjectChange(ProjectChangeEvent event) {
+        int row = projectTableModel.indexOf(event.getProjectId());
+        if (row < 0) {
+            return;
+        }
+        Project project = projectTableModel.getProjectAt(row);
+        event.applyTo(project);
+        projectTableModel.updateProject(project);
+    }
 
-        projectTable.setModel(model);
-        projectTable.getColumnModel().getColumn(11).setCellRenderer(new ButtonRenderer());
-        projectTable.getColumnModel().getColumn(11).setCellEditor(new ButtonEditor(new JCheckBox()));
-        projectTable.getColumnModel().getColumn(10).setPreferredWidth(200);
+    // Chỉ những dòng khác với dữ liệu đang hiển thị mới được vẽ lại
+    private void updateTable(List<Project> projects) {
+        projectTableModel.setProjects(projects);
+    }
+    // Nối thêm một trang vào cuối bảng hiện tại
+    private void appendToTable(List<Project> projects) {
+        projectTableModel.appendProjects(projects);
     }
 
     private void downloadFileViaSocket(String filePath) {
@@ -486,7 +460,7 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
                     if (result.isSuccess()) {
                         showNotification("Tải xuống thành công!", "success");
                     } else {
-                        showNotification("Lỗi tải xuống: Upload failed", "error");
+                        showNotification("Lỗi tải xuống: " + result.getMessage(), "error");
                     }
                 });
             });
@@ -548,22 +522,22 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
         JComboBox<String> cbStudent = new JComboBox<>();
         cbStudent.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         cbStudent.setForeground(Color.BLACK);
-        StudentDAO studentDAO = new StudentDAO(connection);
+        ReferenceDataCache referenceData = ReferenceDataCache.shared(dataSource);
         try {
-            List<Student> students = studentDAO.findAll();
+            List<Student> students = referenceData.getStudents();
             if (students.isEmpty()) {
                 JOptionPane.showMessageDialog(this, "Không có sinh viên nào trong cơ sở dữ liệu.",
                         "Lỗi", JOptionPane.WARNING_MESSAGE);
                 cbStudent.addItem("Không có sinh viên");
             } else {
+                Student matchingStudent = null;
                 for (Student s : students) {
                     cbStudent.addItem(s.getFullName() + " (ID: " + s.getStudentId() + ")");
+                    if (session.getStudentId() != null && s.getStudentId() == session.getStudentId()) {
+                        matchingStudent = s;
+                    }
                 }
-                if ("user".equals(loggedUser.getRole())) {
-                    Student matchingStudent = students.stream()
-                            .filter(s -> s.getUserId() == loggedUser.getUserId())
-                            .findFirst()
-                            .orElse(null);
+                if (session.isStudent()) {
                     if (matchingStudent != null) {
                         cbStudent.setSelectedItem(matchingStudent.getFullName() + " (ID: " + matchingStudent.getStudentId() + ")");
                     } else {
@@ -582,9 +556,8 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
         JComboBox<String> cbTeacher = new JComboBox<>();
         cbTeacher.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         cbTeacher.setForeground(Color.BLACK);
-        TeacherDAO teacherDAO = new TeacherDAO(connection);
         try {
-            List<Teacher> teachers = teacherDAO.findAll();
+            List<Teacher> teachers = referenceData.getTeachers();
             for (Teacher t : teachers) {
                 cbTeacher.addItem(t.getFullName() + " (ID: " + t.getTeacherId() + ")");
             }
@@ -771,23 +744,21 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
                 // Lưu project vào database trước
                 boolean success;
                 int newProjectId;
-                synchronized (projectDAO) {
-                    success = projectDAO.addProject(project);
-                    if (success) {
-                        List<Project> projects = projectDAO.searchByTitleOrStudentId(title);
-                        Project addedProject = projects.stream()
-                                .filter(p -> p.getTitle().equals(title) && p.getStudentId() == studentId)
-                                .findFirst()
-                                .orElse(null);
-                        if (addedProject != null) {
-                            newProjectId = addedProject.getProjectId();
-                            project.setProjectId(newProjectId);
-                        } else {
-                            throw new SQLException("Không tìm thấy dự án vừa thêm trong cơ sở dữ liệu.");
-                        }
+                success = projectDAO.addProject(project);
+                if (success) {
+                    List<Project> projects = projectDAO.searchByTitleOrStudentId(title);
+                    Project addedProject = projects.stream()
+                            .filter(p -> p.getTitle().equals(title) && p.getStudentId() == studentId)
+                            .findFirst()
+                            .orElse(null);
+                    if (addedProject != null) {
+                        newProjectId = addedProject.getProjectId();
+                        project.setProjectId(newProjectId);
                     } else {
-                        throw new SQLException("Thêm đồ án thất bại.");
+                        throw new SQLException("Không tìm thấy dự án vừa thêm trong cơ sở dữ liệu.");
                     }
+                } else {
+                    throw new SQLException("Thêm đồ án thất bại.");
                 }
 
                 // Nếu có file để upload
@@ -809,11 +780,9 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
                                 if (result.isSuccess()) {
                                     try {
                                         project.getFilePaths().add(result.getFilePath());
-                                        synchronized (projectDAO) {
-                                            projectDAO.addFile(newProjectId, result.getFilePath());
-                                            project.setNgayNop(new Date());
-                                            projectDAO.updateProject(project);
-                                        }
+                                        addFileRecord(newProjectId, result.getFilePath());
+                                        project.setNgayNop(new Date());
+                                        projectDAO.updateProject(project);
                                         loadProjectsAsync();
                                         dialog.dispose();
                                         showNotification("Thêm đồ án thành công!", "success");
@@ -889,9 +858,13 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
                                     System.out.println("Upload result: " + result);
                                     System.out.println("File path from result: " + uploadedFilePath);
 
-                                    // Xử lý trường hợp filePath null hoặc empty
-                                    if (uploadedFilePath == null || uploadedFilePath.trim().isEmpty()) {
-                                        // Thử lấy từ các field khác của result nếu có
+                                    if (uploadedFilePath != null && !uploadedFilePath.trim().isEmpty()) {
+                                        // Server đã ghi project_files và ngày nộp ngay khi nhận đủ dữ liệu
+                                        project.getFilePaths().add(uploadedFilePath);
+                                        project.setNgayNop(new Date());
+                                        showNotification("Tải lên file và thêm đồ án thành công!", "success");
+                                    } else {
+                                        // Server không trả về đường dẫn: thử lấy từ các field khác của result nếu có
                                         String alternativePath = tryGetAlternativeFilePath(result, filePath);
 
                                         if (alternativePath != null && !alternativePath.trim().isEmpty()) {
@@ -907,20 +880,14 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
                                             throw new SQLException("Server không trả về đường dẫn file hợp lệ. " +
                                                     "Vui lòng kiểm tra cấu hình server hoặc thử lại.");
                                         }
-                                    }
 
-                                    // Thêm file vào project
-                                    project.getFilePaths().add(uploadedFilePath);
+                                        // Thêm file vào project
+                                        project.getFilePaths().add(uploadedFilePath);
 
-                                    synchronized (projectDAO) {
-                                        boolean fileAdded = projectDAO.addFile(projectId, uploadedFilePath);
-                                        if (fileAdded) {
-                                            project.setNgayNop(new Date());
-                                            projectDAO.updateProject(project);
-                                            showNotification("Tải lên file và thêm đồ án thành công!", "success");
-                                        } else {
-                                            showNotification("Đồ án đã được tạo nhưng có lỗi khi liên kết file.", "warning");
-                                        }
+                                        addFileRecord(projectId, uploadedFilePath);
+                                        project.setNgayNop(new Date());
+                                        projectDAO.updateProject(project);
+                                        showNotification("Tải lên file và thêm đồ án thành công!", "success");
                                     }
 
                                     loadProjectsAsync();
@@ -1099,9 +1066,9 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
             JComboBox<String> cbStudentComboBox = new JComboBox<>();
             cbStudentComboBox.setFont(new Font("Segoe UI", Font.PLAIN, 14));
             cbStudentComboBox.setForeground(Color.BLACK);
-            StudentDAO studentDAO = new StudentDAO(connection);
+            ReferenceDataCache referenceData = ReferenceDataCache.shared(dataSource);
             try {
-                List<Student> students = studentDAO.findAll();
+                List<Student> students = referenceData.getStudents();
                 for (Student s : students) {
                     cbStudentComboBox.addItem(s.getFullName() + " (ID: " + s.getStudentId() + ")");
                 }
@@ -1114,9 +1081,8 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
             JComboBox<String> cbTeacherComboBox = new JComboBox<>();
             cbTeacherComboBox.setFont(new Font("Segoe UI", Font.PLAIN, 14));
             cbTeacherComboBox.setForeground(Color.BLACK);
-            TeacherDAO teacherDAO = new TeacherDAO(connection);
             try {
-                List<Teacher> teachers = teacherDAO.findAll();
+                List<Teacher> teachers = referenceData.getTeachers();
                 for (Teacher t : teachers) {
                     cbTeacherComboBox.addItem(t.getFullName() + " (ID: " + t.getTeacherId() + ")");
                 }
@@ -1319,10 +1285,15 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
                     }
 
                     if (!comment.isEmpty() && "teacher".equals(loggedUser.getRole())) {
-                        synchronized (projectDAO) {
-                            projectDAO.addComment(projectId, teacherId, comment);
-                            project.getComments().add(comment);
-                        }
+                        // Ghi theo lô ở nền, không chặn EDT; chỉ báo lại nếu ghi thất bại
+                        DBConnection.getProjectChildWriter().addComment(projectId, teacherId, comment)
+                                .whenComplete((ignored, error) -> {
+                                    if (error != null) {
+                                        SwingUtilities.invokeLater(() ->
+                                                showNotification("Lỗi lưu nhận xét: " + error.getMessage(), "error"));
+                                    }
+                                });
+                        project.getComments().add(comment);
                     }
 
                     if (!sourceFilePath.isEmpty() && !sourceFilePath.equals(project.getLatestFilePath())) {
@@ -1333,11 +1304,9 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
                                 if (result.isSuccess()) {
                                     try {
                                         project.getFilePaths().add(result.getFilePath());
-                                        synchronized (projectDAO) {
-                                            projectDAO.addFile(projectId, result.getFilePath());
-                                            project.setNgayNop(new Date());
-                                            projectDAO.updateProject(project);
-                                        }
+                                        addFileRecord(projectId, result.getFilePath());
+                                        project.setNgayNop(new Date());
+                                        projectDAO.updateProject(project);
                                         loadProjectsAsync();
                                         dialog.dispose();
                                         showNotification("Sửa đồ án thành công!", "success");
@@ -1348,9 +1317,7 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
                             });
                         }
                     } else {
-                        synchronized (projectDAO) {
-                            projectDAO.updateProject(project);
-                        }
+                        projectDAO.updateProject(project);
                         loadProjectsAsync();
                         dialog.dispose();
                         showNotification("Sửa đồ án thành công!", "success");
@@ -1381,16 +1348,12 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
         String projectStatus = (String) projectTable.getValueAt(selectedRow, 6);
 
         try {
-            Project project = projectDAO.findById(projectId);
+            // Chỉ cần student_id để kiểm tra quyền, không tải file/bình luận
+            Project project = projectDAO.findRowById(projectId);
 
             // Kiểm tra quyền xóa cho role user
             if ("user".equals(loggedUser.getRole())) {
-                StudentDAO studentDAO = new StudentDAO(connection);
-                Student currentStudent = studentDAO.findAll().stream()
-                        .filter(s -> s.getUserId() == loggedUser.getUserId())
-                        .findFirst()
-                        .orElse(null);
-                if (currentStudent == null || project.getStudentId() != currentStudent.getStudentId()) {
+                if (session.getStudentId() == null || project.getStudentId() != session.getStudentId()) {
                     JOptionPane.showMessageDialog(this, "Bạn không có quyền xóa đồ án này.",
                             "Lỗi", JOptionPane.WARNING_MESSAGE);
                     return;
@@ -1413,9 +1376,7 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
                         showNotification("Lỗi khi xóa file: " + ex.getMessage(), "error");
                     }
                 }
-                synchronized (projectDAO) {
-                    projectDAO.deleteProject(projectId);
-                }
+                projectDAO.deleteProject(projectId);
                 loadProjectsAsync();
                 showNotification("Xóa đồ án thành công!", "success");
             }
@@ -1424,6 +1385,19 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
         }
     }
 
+    // Thêm dòng project_files qua bộ ghi theo lô và chờ lô chứa nó commit, để bước cập nhật ngày nộp sau đó
+    // chỉ chạy khi file đã được liên kết
+    private void addFileRecord(int projectId, String filePath) throws SQLException {
+        try {
+            DBConnection.getProjectChildWriter().addFile(projectId, filePath).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(e.getCause());
+        }
+    }
+
     private boolean checkSocketConnection() {
         if (!isSocketConnected || socketClient == null) {
             int choice = JOptionPane.showConfirmDialog(this,
@@ -1465,9 +1439,11 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
         private JButton button;
         private String filePath;
         private int row;
+        private final Consumer<String> downloader;
 
-        public ButtonEditor(JCheckBox checkBox) {
+        public ButtonEditor(JCheckBox checkBox, Consumer<String> downloader) {
             super(checkBox);
+            this.downloader = downloader;
             button = new JButton();
             button.setOpaque(true);
             button.setForeground(Color.BLACK);
@@ -1487,13 +1463,10 @@ public class ProjectsPanel extends JPanel implements SocketEventListener {
         @Override
         public Object getCellEditorValue() {
             if (filePath != null && !filePath.isEmpty()) {
-                JFileChooser fileChooser = new JFileChooser();
-                fileChooser.setSelectedFile(new File(filePath.substring(filePath.lastIndexOf("/") + 1)));
-                if (fileChooser.showSaveDialog(button) == JFileChooser.APPROVE_OPTION) {
-                    String destFilePath = fileChooser.getSelectedFile().getAbsolutePath();
-                    UIFileHandler.downloadFileWithProgress(button, filePath, destFilePath, () -> {
-                    });
-                }
+                // Tải qua cổng truyền file của server (tự chuyển sang sao chép cục bộ khi mất kết nối socket);
+                // chạy sau khi kết thúc chỉnh sửa ô để hộp thoại không chặn JTable
+                String path = filePath;
+                SwingUtilities.invokeLater(() -> downloader.accept(path));
             }
             return filePath;
         }
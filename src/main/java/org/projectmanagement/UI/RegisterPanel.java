@@ -2,22 +2,22 @@ package org.projectmanagement.UI;
 
 import org.projectmanagement.dao.UserDAO;
 import org.projectmanagement.models.User;
-import org.mindrot.jbcrypt.BCrypt;
+import org.projectmanagement.dao.AuthService;
 
+import javax.sql.DataSource;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.sql.Connection;
 
 public class RegisterPanel extends JPanel {
     private JTextField txtUsername, txtFullName, txtEmail, txtPhone, txtStudentCode;
     private JPasswordField txtPassword, txtConfirmPassword;
     private JButton btnRegister, btnBack;
     private JLabel lblMessage;
-    private Connection connection;
+    private DataSource dataSource;
 
-    public RegisterPanel(Connection connection) {
-        this.connection = connection;
+    public RegisterPanel(DataSource dataSource) {
+        this.dataSource = dataSource;
         initComponents();
     }
 
@@ -132,7 +132,7 @@ public class RegisterPanel extends JPanel {
         // Nếu qua hết validate, tiếp tục tạo User và đăng ký
         User user = new User();
         user.setUsername(username);
-        user.setPassword(BCrypt.hashpw(password, BCrypt.gensalt()));
+        user.setPassword(AuthService.hashPassword(password));
         user.setEmail(email);
         user.setFullName(fullName);
         user.setRole("user");
@@ -140,7 +140,7 @@ public class RegisterPanel extends JPanel {
         user.setStudentCode(studentCode);
         user.setAvatarPath("images/default.png");
 
-        UserDAO dao = new UserDAO(connection);
+        UserDAO dao = new UserDAO(dataSource);
         try {
             if (dao.registerUser(user)) {
                 lblMessage.setForeground(new Color(0, 128, 0));
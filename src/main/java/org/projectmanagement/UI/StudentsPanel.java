@@ -1,11 +1,12 @@
 package org.projectmanagement.UI;
 
-import org.mindrot.jbcrypt.BCrypt;
+import org.projectmanagement.dao.AuthService;
 import org.projectmanagement.dao.StudentDAO;
 import org.projectmanagement.dao.UserDAO;
 import org.projectmanagement.models.Student;
 import org.projectmanagement.models.User;
 
+import javax.sql.DataSource;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.DocumentEvent;
@@ -13,25 +14,27 @@ import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 public class StudentsPanel extends JPanel {
     private User loggedUser;
-    private Connection connection;
+    private DataSource dataSource;
     private StudentDAO studentDAO;
     private JTable studentTable;
     private DefaultTableModel tableModel;
     private TableRowSorter<DefaultTableModel> sorter;
     private JButton btnAdd, btnEdit, btnDelete, btnSearch, btnReset;
     private JTextField txtSearch;
+    // Số sinh viên mỗi lần tải khi cuộn bảng
+    private static final int PAGE_SIZE = 200;
+    private PagedTableLoader<Student> studentPager;
 
-    public StudentsPanel(User user, Connection connection) {
+    public StudentsPanel(User user, DataSource dataSource) {
         this.loggedUser = user;
-        this.connection = connection;
-        this.studentDAO = new StudentDAO(connection);
+        this.dataSource = dataSource;
+        this.studentDAO = new StudentDAO(dataSource);
         initComponents();
         loadStudentsAsync();
     }
@@ -112,6 +115,22 @@ public class StudentsPanel extends JPanel {
 
         JScrollPane scrollPane = new JScrollPane(studentTable);
         add(scrollPane, BorderLayout.CENTER);
+        studentPager = new PagedTableLoader<>(scrollPane, PAGE_SIZE, studentDAO::findPageAfter,
+                Student::getStudentId, new PagedTableLoader.PageListener<Student>() {
+                    @Override
+                    public void onPage(List<Student> page, boolean firstPage) {
+                        if (firstPage) {
+                            updateTable(page);
+                        } else {
+                            appendToTable(page);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        JOptionPane.showMessageDialog(StudentsPanel.this, "Lỗi tải dữ liệu: " + e.getMessage(), "Lỗi", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
 
         // Nút hành động
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
@@ -175,25 +194,7 @@ public class StudentsPanel extends JPanel {
     }
 
     private void loadStudentsAsync() {
-        SwingWorker<List<Student>, Void> worker = new SwingWorker<List<Student>, Void>() {
-            @Override
-            protected List<Student> doInBackground() throws Exception {
-                synchronized (studentDAO) {
-                    return studentDAO.findAll();
-                }
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    List<Student> students = get();
-                    updateTable(students);
-                } catch (InterruptedException | ExecutionException e) {
-                    JOptionPane.showMessageDialog(StudentsPanel.this, "Lỗi tải dữ liệu: " + e.getMessage(), "Lỗi", JOptionPane.ERROR_MESSAGE);
-                }
-            }
-        };
-        worker.execute();
+        studentPager.reset();
     }
 
     // Cải thiện phương thức searchStudents giống TeachersPanel
@@ -203,12 +204,12 @@ public class StudentsPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Vui lòng nhập từ khóa tìm kiếm.", "Thông báo", JOptionPane.WARNING_MESSAGE);
             return;
         }
+        // Kết quả tìm kiếm hiển thị đầy đủ, không tải thêm trang khi cuộn
+        studentPager.stop();
         SwingWorker<List<Student>, Void> worker = new SwingWorker<List<Student>, Void>() {
             @Override
             protected List<Student> doInBackground() throws Exception {
-                synchronized (studentDAO) {
-                    return studentDAO.searchByNameOrEmail(keyword);
-                }
+                return studentDAO.searchByNameOrEmail(keyword);
             }
 
             @Override
@@ -232,15 +233,7 @@ public class StudentsPanel extends JPanel {
         String[] columns = {"ID", "Tên", "Email", "Số điện thoại", "Chuyên ngành", "Mã lớp"};
         Object[][] data = new Object[students.size()][6];
         for (int i = 0; i < students.size(); i++) {
-            Student s = students.get(i);
-            data[i] = new Object[]{
-                    s.getStudentId(),
-                    s.getFullName(),
-                    s.getEmail(),
-                    s.getPhoneNumber(),
-                    s.getMajor(),
-                    s.getClassCode()
-            };
+            data[i] = toRow(students.get(i));
         }
         DefaultTableModel model = new DefaultTableModel(data, columns) {
             @Override
@@ -255,6 +248,24 @@ public class StudentsPanel extends JPanel {
         sorter = new TableRowSorter<>(tableModel);
         studentTable.setRowSorter(sorter);
     }
+    // Nối thêm một trang vào cuối bảng hiện tại
+    private void appendToTable(List<Student> students) {
+        DefaultTableModel model = (DefaultTableModel) studentTable.getModel();
+        for (Student s : students) {
+            model.addRow(toRow(s));
+        }
+    }
+
+    private Object[] toRow(Student s) {
+        return new Object[]{
+                s.getStudentId(),
+                s.getFullName(),
+                s.getEmail(),
+                s.getPhoneNumber(),
+                s.getMajor(),
+                s.getClassCode()
+        };
+    }
 
     private void showAddStudentDialog() {
         JDialog dialog = new JDialog();
@@ -366,7 +377,7 @@ public class StudentsPanel extends JPanel {
                 // Tạo tai khoan dang nhap voi mat khau mac dinh là pass123
                 User user = new User();
                 user.setUsername(email);
-                user.setPassword(BCrypt.hashpw("pass123", BCrypt.gensalt())); //// Hàm băm BCrypt
+                user.setPassword(AuthService.hashPassword("pass123")); //// Hàm băm BCrypt
                 user.setEmail(email);
                 user.setFullName(fullName);
                 user.setRole("user");
@@ -374,36 +385,32 @@ public class StudentsPanel extends JPanel {
                 user.setStudentCode(studentCode);
                 user.setAvatarPath("images/default.png");
 
-                UserDAO userDAO = new UserDAO(connection);
-
-                synchronized (userDAO) {
-                    if (userDAO.findByEmail(email) != null) {
-                        JOptionPane.showMessageDialog(this, "Email đã được sử dụng.", "Lỗi", JOptionPane.WARNING_MESSAGE);
-                        return;
-                    }
+                UserDAO userDAO = new UserDAO(dataSource);
 
-                    userDAO.registerUser(user);
+                if (userDAO.findByEmail(email) != null) {
+                    JOptionPane.showMessageDialog(this, "Email đã được sử dụng.", "Lỗi", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
 
-                    User createdUser = userDAO.findByEmail(email);
-                    if (createdUser == null) {
-                        throw new SQLException("Không thể lấy thông tin tài khoản vừa tạo.");
-                    }
+                userDAO.registerUser(user);
 
-                    Student student = new Student(
-                            0,
-                            fullName,
-                            email,
-                            phoneNumber,
-                            major,
-                            classCode,
-                            createdUser.getUserId()
-                    );
-
-                    synchronized (studentDAO) {
-                        studentDAO.addStudent(student, createdUser.getUserId());
-                    }
+                User createdUser = userDAO.findByEmail(email);
+                if (createdUser == null) {
+                    throw new SQLException("Không thể lấy thông tin tài khoản vừa tạo.");
                 }
 
+                Student student = new Student(
+                        0,
+                        fullName,
+                        email,
+                        phoneNumber,
+                        major,
+                        classCode,
+                        createdUser.getUserId()
+                );
+
+                studentDAO.addStudent(student, createdUser.getUserId());
+
                 loadStudentsAsync();
                 dialog.dispose();
                 JOptionPane.showMessageDialog(this, "Thêm sinh viên và tài khoản thành công! Mật khẩu mặc định: pass123", "Thành công", JOptionPane.INFORMATION_MESSAGE);
@@ -466,7 +473,7 @@ public class StudentsPanel extends JPanel {
             btnSave.setBackground(new Color(0, 123, 255));
             btnSave.setForeground(Color.BLACK);
 
-            UserDAO userDAO = new UserDAO(connection);
+            UserDAO userDAO = new UserDAO(dataSource);
             User user = userDAO.findByEmail(student.getEmail());
             if (user != null) {
                 txtStudentCode.setText(user.getStudentCode());
@@ -561,14 +568,10 @@ public class StudentsPanel extends JPanel {
                         user.setPhoneNumber(phoneNumber);
                         user.setStudentCode(studentCode);
 
-                        synchronized (userDAO) {
-                            userDAO.updateUser(user);
-                        }
+                        userDAO.updateUser(user);
                     }
 
-                    synchronized (studentDAO) {
-                        studentDAO.updateStudent(student);
-                    }
+                    studentDAO.updateStudent(student);
 
                     loadStudentsAsync();
                     dialog.dispose();
@@ -596,9 +599,7 @@ public class StudentsPanel extends JPanel {
         int confirm = JOptionPane.showConfirmDialog(this, "Bạn có chắc muốn xóa sinh viên này?", "Xác nhận", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                synchronized (studentDAO) {
-                    studentDAO.deleteStudent(studentId);
-                }
+                studentDAO.deleteStudent(studentId);
                 loadStudentsAsync();
                 JOptionPane.showMessageDialog(this, "Xóa sinh viên thành công!", "Thành công", JOptionPane.INFORMATION_MESSAGE);
             } catch (Exception ex) {
@@ -4,27 +4,37 @@ import org.projectmanagement.dao.TeacherDAO;
 import org.projectmanagement.models.Teacher;
 import org.projectmanagement.models.User;
 
+import javax.sql.DataSource;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.sql.Connection;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 public class TeachersPanel extends JPanel {
     private User loggedUser;
-    private Connection connection;
+    private DataSource dataSource;
     private TeacherDAO teacherDAO;
     private JTable teacherTable;
-    private JButton btnAdd, btnEdit, btnDelete, btnSearch, btnReset;
+    private JButton btnAdd, btnEdit, btnDelete, btnImport, btnSearch, btnReset;
     private JTextField txtSearch;
+    // Số giảng viên mỗi lần tải khi cuộn bảng
+    private static final int PAGE_SIZE = 200;
+    private PagedTableLoader<Teacher> teacherPager;
 
-    public TeachersPanel(User user, Connection connection) {
+    public TeachersPanel(User user, DataSource dataSource) {
         this.loggedUser = user;
-        this.connection = connection;
-        this.teacherDAO = new TeacherDAO(connection);
+        this.dataSource = dataSource;
+        this.teacherDAO = new TeacherDAO(dataSource);
         initComponents();
         loadTeachersAsync();
     }
@@ -93,6 +103,22 @@ public class TeachersPanel extends JPanel {
         teacherTable.setDefaultRenderer(Object.class, new CustomTableCellRenderer());
         JScrollPane scrollPane = new JScrollPane(teacherTable);
         add(scrollPane, BorderLayout.CENTER);
+        teacherPager = new PagedTableLoader<>(scrollPane, PAGE_SIZE, teacherDAO::findPageAfter,
+                Teacher::getTeacherId, new PagedTableLoader.PageListener<Teacher>() {
+                    @Override
+                    public void onPage(List<Teacher> page, boolean firstPage) {
+                        if (firstPage) {
+                            updateTable(page);
+                        } else {
+                            appendToTable(page);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        JOptionPane.showMessageDialog(TeachersPanel.this, "Lỗi tải dữ liệu: " + e.getMessage(), "Lỗi", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
 
         // Nút hành động
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
@@ -101,55 +127,41 @@ public class TeachersPanel extends JPanel {
         btnAdd = new JButton("Thêm giảng viên");
         btnEdit = new JButton("Sửa giảng viên");
         btnDelete = new JButton("Xóa giảng viên");
+        btnImport = new JButton("Nhập CSV");
 
         btnAdd.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         btnEdit.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         btnDelete.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        btnImport.setFont(new Font("Segoe UI", Font.PLAIN, 14));
 
         btnAdd.setBackground(new Color(0, 123, 255));
         btnEdit.setBackground(new Color(0, 123, 255));
         btnDelete.setBackground(new Color(255, 0, 0));
+        btnImport.setBackground(new Color(0, 123, 255));
 
         btnAdd.setForeground(Color.BLACK);
         btnEdit.setForeground(Color.BLACK);
         btnDelete.setForeground(Color.BLACK);
+        btnImport.setForeground(Color.BLACK);
 
         btnAdd.addActionListener(e -> showAddTeacherDialog());
         btnEdit.addActionListener(e -> showEditTeacherDialog());
         btnDelete.addActionListener(e -> deleteSelectedTeacher());
+        btnImport.addActionListener(e -> importTeachersFromCsv());
 
         buttonPanel.add(btnAdd);
         buttonPanel.add(btnEdit);
         buttonPanel.add(btnDelete);
+        buttonPanel.add(btnImport);
         add(buttonPanel, BorderLayout.SOUTH);
     }
-//Sử dụng SwingWorker để thực hiện truy vấn cơ sở dữ liệu trong luồng nền, tránh làm treo giao diện.
-//Trong doInBackground():
-//Gọi teacherDAO.findAll() để lấy toàn bộ danh sách giảng viên.
-//Sử dụng synchronized để đảm bảo thread-safety khi truy cập teacherDAO.
-//Trong done():
-//Lấy danh sách giảng viên và cập nhật bảng bằng updateTable().
-//Nếu có lỗi (InterruptedException hoặc ExecutionException), hiển thị thông báo lỗi qua JOptionPane.
+//Tải lại bảng từ trang đầu qua teacherPager (PagedTableLoader):
+//Mỗi trang gọi teacherDAO.findPageAfter(lastId, PAGE_SIZE) trong SwingWorker, seek theo teacher_id.
+//teacherDAO mượn kết nối riêng từ pool cho mỗi thao tác nên không cần synchronized.
+//Trang đầu thay dữ liệu bảng bằng updateTable(), các trang sau được nối thêm khi cuộn gần cuối bảng.
+//Nếu có lỗi, hiển thị thông báo lỗi qua JOptionPane.
     private void loadTeachersAsync() {
-        SwingWorker<List<Teacher>, Void> worker = new SwingWorker<List<Teacher>, Void>() {
-            @Override
-            protected List<Teacher> doInBackground() throws Exception {
-                synchronized (teacherDAO) {
-                    return teacherDAO.findAll();
-                }
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    List<Teacher> teachers = get();
-                    updateTable(teachers);
-                } catch (InterruptedException | ExecutionException e) {
-                    JOptionPane.showMessageDialog(TeachersPanel.this, "Lỗi tải dữ liệu: " + e.getMessage(), "Lỗi", JOptionPane.ERROR_MESSAGE);
-                }
-            }
-        };
-        worker.execute();
+        teacherPager.reset();
     }
 //Lấy từ khóa từ txtSearch.getText().trim().
 //Nếu từ khóa trống, hiển thị thông báo yêu cầu nhập từ khóa.
@@ -163,12 +175,12 @@ public class TeachersPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Vui lòng nhập từ khóa tìm kiếm.", "Thông báo", JOptionPane.WARNING_MESSAGE);
             return;
         }
+        // Kết quả tìm kiếm hiển thị đầy đủ, không tải thêm trang khi cuộn
+        teacherPager.stop();
         SwingWorker<List<Teacher>, Void> worker = new SwingWorker<List<Teacher>, Void>() {
             @Override
             protected List<Teacher> doInBackground() throws Exception {
-                synchronized (teacherDAO) {
-                    return teacherDAO.searchByNameOrEmail(keyword);
-                }
+                return teacherDAO.searchByNameOrEmail(keyword);
             }
 
             @Override
@@ -191,14 +203,7 @@ public class TeachersPanel extends JPanel {
         String[] columns = {"ID", "Tên", "Email", "Số điện thoại", "Chức vụ"};
         Object[][] data = new Object[teachers.size()][5];
         for (int i = 0; i < teachers.size(); i++) {
-            Teacher t = teachers.get(i);
-            data[i] = new Object[]{
-                    t.getTeacherId(),
-                    t.getFullName(),
-                    t.getEmail(),
-                    t.getPhoneNumber(),
-                    t.getPosition()
-            };
+            data[i] = toRow(teachers.get(i));
         }
         DefaultTableModel model = new DefaultTableModel(data, columns) {
             @Override
@@ -208,6 +213,23 @@ public class TeachersPanel extends JPanel {
         };
         teacherTable.setModel(model);
     }
+    // Nối thêm một trang vào cuối bảng hiện tại
+    private void appendToTable(List<Teacher> teachers) {
+        DefaultTableModel model = (DefaultTableModel) teacherTable.getModel();
+        for (Teacher t : teachers) {
+            model.addRow(toRow(t));
+        }
+    }
+
+    private Object[] toRow(Teacher t) {
+        return new Object[]{
+                t.getTeacherId(),
+                t.getFullName(),
+                t.getEmail(),
+                t.getPhoneNumber(),
+                t.getPosition()
+        };
+    }
 
     private void showAddTeacherDialog() {
         JDialog dialog = new JDialog();
@@ -282,9 +304,7 @@ public class TeachersPanel extends JPanel {
                         txtPhoneNumber.getText(),
                         txtPosition.getText()
                 );
-                synchronized (teacherDAO) {
-                    teacherDAO.addTeacher(teacher);
-                }
+                teacherDAO.addTeacher(teacher);
                 loadTeachersAsync();
                 dialog.dispose();
                 JOptionPane.showMessageDialog(this, "Thêm giảng viên thành công!", "Thành công", JOptionPane.INFORMATION_MESSAGE);
@@ -295,6 +315,78 @@ public class TeachersPanel extends JPanel {
 
         dialog.setVisible(true);
     }
+//Nhập danh sách giảng viên từ file CSV: mỗi dòng "họ tên,email,số điện thoại,chức vụ" (có thể có dòng tiêu đề,
+//dùng ';' nếu file xuất từ Excel). Mọi dòng phải hợp lệ; cả danh sách được thêm trong một transaction
+//qua teacherDAO.addTeachers(), mỗi giảng viên có tài khoản với mật khẩu mặc định pass123.
+    private void importTeachersFromCsv() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("File CSV (*.csv)", "csv"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        btnImport.setEnabled(false);
+
+        SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws IOException, SQLException {
+                List<Teacher> teachers = new ArrayList<>();
+                List<String> errors = new ArrayList<>();
+                try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    String line;
+                    int lineNumber = 0;
+                    boolean firstDataLine = true;
+                    while ((line = reader.readLine()) != null) {
+                        lineNumber++;
+                        // Excel lưu "CSV UTF-8" kèm BOM ở đầu tệp, không bỏ thì họ tên dòng đầu dính ký tự BOM
+                        if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                            line = line.substring(1);
+                        }
+                        if (line.trim().isEmpty()) {
+                            continue;
+                        }
+                        String[] cells = line.split(line.indexOf(';') >= 0 ? ";" : ",", -1);
+                        String fullName = cells[0].trim();
+                        String email = cells.length > 1 ? cells[1].trim() : "";
+                        if (firstDataLine) {
+                            firstDataLine = false;
+                            if (!email.contains("@")) {
+                                continue; // Dòng tiêu đề
+                            }
+                        }
+                        if (fullName.isEmpty() || !email.contains("@")) {
+                            errors.add("Dòng " + lineNumber + ": cần họ tên và email hợp lệ");
+                            continue;
+                        }
+                        teachers.add(new Teacher(0, fullName, email,
+                                cells.length > 2 ? cells[2].trim() : "",
+                                cells.length > 3 ? cells[3].trim() : ""));
+                    }
+                }
+                if (!errors.isEmpty()) {
+                    throw new IOException(errors.size() + " dòng không hợp lệ, chưa nhập giảng viên nào.\n"
+                            + String.join("\n", errors.subList(0, Math.min(errors.size(), 20))));
+                }
+                return teacherDAO.addTeachers(teachers);
+            }
+
+            @Override
+            protected void done() {
+                btnImport.setEnabled(true);
+                try {
+                    int added = get();
+                    loadTeachersAsync();
+                    JOptionPane.showMessageDialog(TeachersPanel.this, "Đã thêm " + added + " giảng viên.",
+                            "Thành công", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(TeachersPanel.this,
+                            "Lỗi nhập giảng viên: " + cause.getMessage(), "Lỗi", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
 //Kiểm tra xem người dùng đã chọn một hàng trong bảng chưa (teacherTable.getSelectedRow()).
 //Lấy teacherId từ hàng đã chọn và dùng teacherDAO.findById() để lấy thông tin giảng viên.
 //Tạo JDialog với các trường nhập liệu điền sẵn thông tin giảng viên.
@@ -381,9 +473,7 @@ public class TeachersPanel extends JPanel {
                     teacher.setEmail(txtEmail.getText());
                     teacher.setPhoneNumber(txtPhoneNumber.getText());
                     teacher.setPosition(txtPosition.getText());
-                    synchronized (teacherDAO) {
-                        teacherDAO.updateTeacher(teacher);
-                    }
+                    teacherDAO.updateTeacher(teacher);
                     loadTeachersAsync();
                     dialog.dispose();
                     JOptionPane.showMessageDialog(this, "Sửa giảng viên thành công!", "Thành công", JOptionPane.INFORMATION_MESSAGE);
@@ -413,9 +503,7 @@ public class TeachersPanel extends JPanel {
         int confirm = JOptionPane.showConfirmDialog(this, "Bạn có chắc muốn xóa giảng viên này?", "Xác nhận", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                synchronized (teacherDAO) {
-                    teacherDAO.deleteTeacher(teacherId);
-                }
+                teacherDAO.deleteTeacher(teacherId);
                 loadTeachersAsync();
                 JOptionPane.showMessageDialog(this, "Xóa giảng viên thành công!", "Thành công", JOptionPane.INFORMATION_MESSAGE);
             } catch (SQLException ex) {
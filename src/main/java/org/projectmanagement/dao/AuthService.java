@@ -0,0 +1,178 @@
+package org.projectmanagement.dao;
+
+import org.mindrot.jbcrypt.BCrypt;
+import org.projectmanagement.models.UserSession;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Xác thực đăng nhập bất đồng bộ. BCrypt.checkpw cố ý tốn CPU (hàng chục ms mỗi lần), nên mọi lượt kiểm tra
+// mật khẩu chạy trên một pool riêng có giới hạn thay vì trên thread giao diện:
+// - auth.threads luồng (mặc định nửa số CPU), độ ưu tiên thấp hơn bình thường để đợt đăng nhập dồn dập không
+//   chiếm hết CPU của các việc khác
+// - hàng đợi auth.queueCapacity yêu cầu (mặc định 64); đầy thì từ chối ngay (RejectedExecutionException)
+//   thay vì để người dùng chờ vô hạn
+// - đăng nhập thành công với mật khẩu băm khác work factor auth.bcryptRounds (mặc định 10) thì băm lại
+// metrics() cho biết độ dài hàng đợi và thời gian kiểm tra mật khẩu.
+public class AuthService {
+    private static final int THREADS = Integer.getInteger("auth.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int QUEUE_CAPACITY = Integer.getInteger("auth.queueCapacity", 64);
+    private static final int BCRYPT_ROUNDS = Integer.getInteger("auth.bcryptRounds", 10);
+
+    private static AuthService shared;
+
+    private final UserDAO userDAO;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+    private final AtomicLong maxVerifyNanos = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rehashed = new LongAdder();
+
+    private AuthService(DataSource dataSource) {
+        this.userDAO = new UserDAO(dataSource);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "auth-verifier-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                });
+    }
+
+    // Service dùng chung của tiến trình; ứng dụng chỉ có một DataSource (DBConnection.getDataSource())
+    public static synchronized AuthService shared(DataSource dataSource) {
+        if (shared == null) {
+            shared = new AuthService(dataSource);
+        }
+        return shared;
+    }
+
+    // Băm mật khẩu mới với work factor cấu hình (đăng ký, đổi mật khẩu, tạo tài khoản mặc định)
+    public static String hashPassword(String password) {
+        return BCrypt.hashpw(password, BCrypt.gensalt(BCRYPT_ROUNDS));
+    }
+
+    // Đăng nhập bằng email. Future hoàn thành bằng phiên đăng nhập, null nếu sai email hoặc mật khẩu;
+    // kết thúc với RejectedExecutionException nếu hàng đợi xác thực đã đầy, SQLException nếu lỗi DB
+    public CompletableFuture<UserSession> loginByEmail(String email, String password) {
+        CompletableFuture<UserSession> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    authenticate(email, password, future);
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void authenticate(String email, String password, CompletableFuture<UserSession> future) {
+        UserDAO.Credentials credentials;
+        try {
+            credentials = userDAO.findCredentialsByEmail(email);
+        } catch (SQLException e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        if (credentials == null) {
+            future.complete(null);
+            return;
+        }
+
+        boolean matches;
+        long start = System.nanoTime();
+        try {
+            matches = BCrypt.checkpw(password, credentials.passwordHash);
+        } catch (IllegalArgumentException e) {
+            // Mật khẩu trong DB không phải chuỗi BCrypt hợp lệ
+            future.completeExceptionally(e);
+            return;
+        } finally {
+            recordVerification(System.nanoTime() - start);
+        }
+        if (!matches) {
+            future.complete(null);
+            return;
+        }
+        future.complete(credentials.session);
+
+        // Băm lại sau khi đã trả kết quả: người dùng không phải chờ thêm một lượt BCrypt. Phiên đã trả về thuộc
+        // thread của người gọi nên chỉ ghi hash mới vào DB, không sửa phiên
+        if (workFactor(credentials.passwordHash) != BCRYPT_ROUNDS) {
+            rehash(credentials, password);
+        }
+    }
+
+    private void rehash(UserDAO.Credentials credentials, String password) {
+        int userId = credentials.session.getUser().getUserId();
+        String newHash = hashPassword(password);
+        try {
+            if (userDAO.replacePasswordHash(userId, credentials.passwordHash, newHash)) {
+                rehashed.increment();
+            }
+        } catch (SQLException e) {
+            System.err.println("Không băm lại được mật khẩu của user " + userId + ": " + e.getMessage());
+        }
+    }
+
+    // Work factor trong chuỗi BCrypt "$2a$10$..."; -1 nếu không đọc được
+    private static int workFactor(String hash) {
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private void recordVerification(long nanos) {
+        verifications.increment();
+        verifyNanos.add(nanos);
+        maxVerifyNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getVerifications() { return verifications.sum(); }
+    public long getRejected() { return rejected.sum(); }
+    public long getRehashed() { return rehashed.sum(); }
+
+    // Thời gian trung bình một lần BCrypt.checkpw (ms)
+    public double getAverageVerifyMillis() {
+        long count = verifications.sum();
+        return count > 0 ? verifyNanos.sum() / (count * 1_000_000.0) : 0.0;
+    }
+
+    public double getMaxVerifyMillis() {
+        return maxVerifyNanos.get() / 1_000_000.0;
+    }
+
+    public String metrics() {
+        return String.format("Xác thực: hàng đợi %d/%d, đang chạy %d, đã kiểm tra %d (TB %.1f ms, tối đa %.1f ms), " +
+                        "từ chối %d, băm lại %d",
+                getQueueDepth(), QUEUE_CAPACITY, getActiveCount(), getVerifications(), getAverageVerifyMillis(),
+                getMaxVerifyMillis(), getRejected(), getRehashed());
+    }
+}
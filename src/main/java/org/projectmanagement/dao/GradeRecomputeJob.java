@@ -0,0 +1,120 @@
+package org.projectmanagement.dao;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+
+// Tính lại final_score và grade của mọi đồ án theo GradingPolicy hiện tại, sau khi đổi trọng số hoặc mốc xếp loại.
+// Duyệt bảng projects một lượt theo trang keyset (project_id > id cuối trang trước), chỉ đọc các cột điểm,
+// và chỉ UPDATE các dòng có kết quả khác giá trị đang lưu. Mỗi trang được ghi theo lô và commit riêng,
+// cùng phần thay đổi của project_stats, nên bộ nhớ chỉ giữ một trang và lỗi giữa chừng không làm mất các trang đã xong.
+public class GradeRecomputeJob {
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    // Cột điểm có thể được lưu đã làm tròn 2 chữ số; chênh lệch dưới nửa đơn vị đó coi như không đổi
+    private static final double SCORE_TOLERANCE = 0.005;
+    private static final String PAGE_SQL = "SELECT project_id, teacher_id, status, process_score, defense_score, " +
+            "final_score, grade FROM projects WHERE project_id > ? ORDER BY project_id LIMIT ? FOR UPDATE";
+    private static final String UPDATE_SQL = "UPDATE projects SET final_score = ?, grade = ? WHERE project_id = ?";
+
+    private final DataSource dataSource;
+    private final GradingPolicy policy;
+    private final int pageSize;
+
+    public GradeRecomputeJob(DataSource dataSource) {
+        this(dataSource, GradingPolicy.current(), DEFAULT_PAGE_SIZE);
+    }
+
+    public GradeRecomputeJob(DataSource dataSource, GradingPolicy policy, int pageSize) {
+        this.dataSource = dataSource;
+        this.policy = policy;
+        this.pageSize = pageSize;
+    }
+
+    // Trả về kết quả gồm số đồ án đã duyệt và số đồ án đã được cập nhật
+    public Result run() throws SQLException {
+        new ProjectStatsStore(dataSource).ensureTable();
+        int scanned = 0;
+        int updated = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement select = connection.prepareStatement(PAGE_SQL);
+             PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+            connection.setAutoCommit(false);
+            try {
+                int lastId = 0;
+                int pageRows;
+                do {
+                    pageRows = 0;
+                    int pending = 0;
+                    ProjectStatsStore.Delta delta = new ProjectStatsStore.Delta();
+                    select.setInt(1, lastId);
+                    select.setInt(2, pageSize);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            pageRows++;
+                            lastId = rs.getInt("project_id");
+                            ProjectStatsStore.Contribution old = ProjectStatsStore.Contribution.from(rs);
+                            Double finalScore = policy.finalScore(old.processScore, old.defenseScore);
+                            String grade = policy.grade(finalScore);
+                            if (sameScore(finalScore, old.finalScore)
+                                    && Objects.equals(grade, rs.getString("grade"))) {
+                                continue;
+                            }
+                            delta.replace(old, old.withScores(old.processScore, old.defenseScore, finalScore, grade));
+                            if (finalScore != null) {
+                                update.setDouble(1, finalScore);
+                            } else {
+                                update.setNull(1, Types.DOUBLE);
+                            }
+                            if (grade != null) {
+                                update.setString(2, grade);
+                            } else {
+                                update.setNull(2, Types.VARCHAR);
+                            }
+                            update.setInt(3, lastId);
+                            update.addBatch();
+                            pending++;
+                        }
+                    }
+                    if (pending > 0) {
+                        update.executeBatch();
+                        delta.flush(connection);
+                    }
+                    connection.commit();
+                    scanned += pageRows;
+                    updated += pending;
+                } while (pageRows == pageSize);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        System.out.println("Đã tính lại điểm (" + policy + "): " + updated + "/" + scanned + " đồ án thay đổi");
+        return new Result(scanned, updated);
+    }
+
+    private static boolean sameScore(Double a, Double b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Math.abs(a - b) < SCORE_TOLERANCE;
+    }
+
+    public static class Result {
+        private final int scannedRows;
+        private final int updatedRows;
+
+        public Result(int scannedRows, int updatedRows) {
+            this.scannedRows = scannedRows;
+            this.updatedRows = updatedRows;
+        }
+
+        public int getScannedRows() { return scannedRows; }
+        public int getUpdatedRows() { return updatedRows; }
+    }
+}
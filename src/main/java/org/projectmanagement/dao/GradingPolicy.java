@@ -0,0 +1,123 @@
+package org.projectmanagement.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Công thức tính điểm tổng kết và xếp loại. Trọng số và các mốc xếp loại đọc từ system property:
+//   -Dgrading.processWeight=0.3 -Dgrading.defenseWeight=0.7 -Dgrading.cutoffs=A:8.5,B:7.0,C:5.5,D:4.0,F:0
+// Các mốc được biên dịch sẵn thành bảng tra theo bước 0.01 điểm, nên xếp loại chỉ là một phép tra mảng.
+public final class GradingPolicy {
+    private static final double DEFAULT_PROCESS_WEIGHT = 0.3;
+    private static final double DEFAULT_DEFENSE_WEIGHT = 0.7;
+    private static final String DEFAULT_CUTOFFS = "A:8.5,B:7.0,C:5.5,D:4.0,F:0";
+    private static final double MAX_SCORE = 10.0;
+    // Bảng tra có độ phân giải 0.01 điểm; các mốc phải là bội của 0.01
+    private static final int STEPS_PER_POINT = 100;
+    private static final int TABLE_SIZE = (int) (MAX_SCORE * STEPS_PER_POINT) + 1;
+    // Bù sai số dấu phẩy động: 0.3 * 6.1 + 0.7 * 5.3 = 5.539999999999999 phải rơi vào ô 5.54, không phải 5.53
+    private static final double EPSILON = 1e-9;
+
+    private static volatile GradingPolicy current;
+
+    private final double processWeight;
+    private final double defenseWeight;
+    private final String cutoffsSpec;
+    private final String[] gradeTable;
+
+    public GradingPolicy(double processWeight, double defenseWeight, String cutoffs) {
+        if (processWeight < 0 || defenseWeight < 0 || Math.abs(processWeight + defenseWeight - 1.0) > EPSILON) {
+            throw new IllegalArgumentException("Trọng số điểm phải không âm và có tổng bằng 1: "
+                    + processWeight + " + " + defenseWeight);
+        }
+        this.processWeight = processWeight;
+        this.defenseWeight = defenseWeight;
+        this.cutoffsSpec = cutoffs;
+        this.gradeTable = compileCutoffs(cutoffs);
+    }
+
+    // Chính sách đang dùng, đọc từ system property ở lần gọi đầu; cấu hình sai thì dùng mặc định
+    public static GradingPolicy current() {
+        GradingPolicy policy = current;
+        if (policy == null) {
+            synchronized (GradingPolicy.class) {
+                policy = current;
+                if (policy == null) {
+                    policy = fromSystemProperties();
+                    current = policy;
+                }
+            }
+        }
+        return policy;
+    }
+
+    private static GradingPolicy fromSystemProperties() {
+        try {
+            return new GradingPolicy(
+                    Double.parseDouble(System.getProperty("grading.processWeight", String.valueOf(DEFAULT_PROCESS_WEIGHT))),
+                    Double.parseDouble(System.getProperty("grading.defenseWeight", String.valueOf(DEFAULT_DEFENSE_WEIGHT))),
+                    System.getProperty("grading.cutoffs", DEFAULT_CUTOFFS));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Cấu hình chấm điểm không hợp lệ, dùng công thức mặc định: " + e.getMessage());
+            return new GradingPolicy(DEFAULT_PROCESS_WEIGHT, DEFAULT_DEFENSE_WEIGHT, DEFAULT_CUTOFFS);
+        }
+    }
+
+    // Điểm tổng kết theo trọng số; null nếu thiếu một trong hai điểm
+    public Double finalScore(Double processScore, Double defenseScore) {
+        if (processScore == null || defenseScore == null) {
+            return null;
+        }
+        return processWeight * processScore + defenseWeight * defenseScore;
+    }
+
+    public String grade(Double finalScore) {
+        if (finalScore == null) {
+            return null;
+        }
+        int index = (int) (finalScore * STEPS_PER_POINT + EPSILON);
+        return gradeTable[Math.max(0, Math.min(TABLE_SIZE - 1, index))];
+    }
+
+    public double getProcessWeight() { return processWeight; }
+    public double getDefenseWeight() { return defenseWeight; }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "quá trình %.2f, bảo vệ %.2f, xếp loại %s", processWeight, defenseWeight, cutoffsSpec);
+    }
+
+    // "A:8.5,B:7.0,...,F:0" -> bảng TABLE_SIZE phần tử, ô i là xếp loại của điểm i / STEPS_PER_POINT
+    private static String[] compileCutoffs(String spec) {
+        List<String> grades = new ArrayList<>();
+        List<Integer> thresholds = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2 || pair[0].trim().isEmpty()) {
+                throw new IllegalArgumentException("Mốc xếp loại không hợp lệ: " + part.trim());
+            }
+            double cutoff = Double.parseDouble(pair[1].trim());
+            if (cutoff < 0 || cutoff > MAX_SCORE) {
+                throw new IllegalArgumentException("Mốc xếp loại phải nằm trong khoảng từ 0 đến 10: " + part.trim());
+            }
+            grades.add(pair[0].trim());
+            thresholds.add((int) Math.round(cutoff * STEPS_PER_POINT));
+        }
+        if (!thresholds.contains(0)) {
+            throw new IllegalArgumentException("Cần một xếp loại có mốc 0 cho các điểm thấp nhất");
+        }
+
+        String[] table = new String[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            // Mốc cao nhất không vượt quá điểm i
+            int best = -1;
+            for (int g = 0; g < thresholds.size(); g++) {
+                if (thresholds.get(g) <= i && (best == -1 || thresholds.get(g) > thresholds.get(best))) {
+                    best = g;
+                }
+            }
+            table[i] = grades.get(best);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,187 @@
+package org.projectmanagement.dao;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Ghi trễ (write-behind) các dòng project_comments và project_files: các lệnh thêm được xếp hàng và một thread
+// nền ghi chúng theo lô bằng addBatch/executeBatch trong một transaction, khi đủ batchSize dòng hoặc sau
+// flushIntervalMs kể từ dòng đầu tiên của lô. Mỗi lệnh thêm trả về future hoàn thành khi lô chứa nó đã commit;
+// nơi cần chắc chắn dòng đã được ghi (ví dụ ngay sau upload) thì join() future đó.
+public class ProjectChildWriter implements AutoCloseable {
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final String INSERT_COMMENT_SQL =
+            "INSERT INTO project_comments (project_id, teacher_id, comment) VALUES (?, ?, ?)";
+    private static final String INSERT_FILE_SQL =
+            "INSERT INTO project_files (project_id, file_path) VALUES (?, ?)";
+
+    private final DataSource dataSource;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    // Hàng đợi có giới hạn: khi đầy, lệnh thêm chờ thay vì để bộ nhớ tăng không kiểm soát
+    private final BlockingQueue<PendingInsert> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread flusher;
+    private volatile boolean running = true;
+    // Kiểm tra running và xếp hàng giữ read lock, close() giữ write lock khi tắt running: không lệnh nào lọt
+    // vào hàng đợi sau khi close() đã bắt đầu chờ thread nền
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    public ProjectChildWriter(DataSource dataSource, int batchSize, long flushIntervalMs) {
+        this.dataSource = dataSource;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.flusher = new Thread(this::runFlusher, "project-child-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public CompletableFuture<Void> addComment(int projectId, int teacherId, String comment) {
+        return enqueue(new PendingInsert(projectId, teacherId, comment, null));
+    }
+
+    public CompletableFuture<Void> addFile(int projectId, String filePath) {
+        return enqueue(new PendingInsert(projectId, 0, null, filePath));
+    }
+
+    private CompletableFuture<Void> enqueue(PendingInsert insert) {
+        closeLock.readLock().lock();
+        try {
+            if (!running) {
+                insert.future.completeExceptionally(new SQLException("Bộ ghi theo lô đã đóng"));
+                return insert.future;
+            }
+            // Hàng đợi đầy thì chờ ở đây; thread nền vẫn chạy nên sẽ có chỗ trống
+            queue.put(insert);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            insert.future.completeExceptionally(e);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        return insert.future;
+    }
+
+    // Ngừng nhận lệnh mới và chờ thread nền ghi hết các dòng còn trong hàng đợi
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Thread nền bị ngắt giữa chừng thì ghi nốt phần còn lại ở đây
+        List<PendingInsert> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            writeBatch(rest);
+        }
+    }
+
+    private void runFlusher() {
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingInsert first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<PendingInsert> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize && running) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingInsert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                // Lấy thêm các dòng đã có sẵn cho đủ lô (khi đang đóng thì không chờ ở vòng trên)
+                queue.drainTo(batch, batchSize - batch.size());
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingInsert> batch) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement comments = connection.prepareStatement(INSERT_COMMENT_SQL);
+                 PreparedStatement files = connection.prepareStatement(INSERT_FILE_SQL)) {
+                int commentCount = 0;
+                int fileCount = 0;
+                for (PendingInsert insert : batch) {
+                    if (insert.comment != null) {
+                        comments.setInt(1, insert.projectId);
+                        comments.setInt(2, insert.teacherId);
+                        comments.setString(3, insert.comment);
+                        comments.addBatch();
+                        commentCount++;
+                    } else {
+                        files.setInt(1, insert.projectId);
+                        files.setString(2, insert.filePath);
+                        files.addBatch();
+                        fileCount++;
+                    }
+                }
+                if (commentCount > 0) {
+                    comments.executeBatch();
+                }
+                if (fileCount > 0) {
+                    files.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            if (batch.size() > 1) {
+                // Một dòng lỗi (ví dụ project_id đã bị xóa) làm hỏng cả lô: ghi lại từng dòng để chỉ dòng đó thất bại
+                System.err.println("Lỗi ghi lô " + batch.size() + " bình luận/file, ghi lại từng dòng: " + e.getMessage());
+                batch.forEach(insert -> writeBatch(Collections.singletonList(insert)));
+            } else {
+                batch.get(0).future.completeExceptionally(e);
+            }
+            return;
+        }
+        batch.forEach(insert -> insert.future.complete(null));
+    }
+
+    // Một dòng chờ ghi: comment != null là bình luận, ngược lại là file
+    private static final class PendingInsert {
+        private final int projectId;
+        private final int teacherId;
+        private final String comment;
+        private final String filePath;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingInsert(int projectId, int teacherId, String comment, String filePath) {
+            this.projectId = projectId;
+            this.teacherId = teacherId;
+            this.comment = comment;
+            this.filePath = filePath;
+        }
+    }
+}
@@ -1,156 +1,415 @@
 package org.projectmanagement.dao;
 
 import org.projectmanagement.models.Project;
+import org.projectmanagement.models.ProjectScoreView;
+import org.projectmanagement.models.ProjectStatusView;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public class ProjectDAO {
-    private Connection connection;
+    private static final String PROJECT_SELECT =
+            "SELECT p.project_id, p.title, p.description, p.ngay_bat_dau, p.ngay_ket_thuc, p.ngay_nop, p.status, " +
+            "p.process_score, p.defense_score, p.final_score, p.grade, " +
+            "s.full_name AS student_name, t.full_name AS teacher_name, s.student_id, t.teacher_id " +
+            "FROM projects p " +
+            "LEFT JOIN students s ON p.student_id = s.student_id " +
+            "LEFT JOIN teachers t ON p.teacher_id = t.teacher_id";
+    // Số project_id tối đa trong một mệnh đề IN (...)
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+    // Nhận project_id sau mỗi lệnh ghi đã commit làm đổi tiêu đề/trạng thái/ngày nộp của dự án:
+    // cache trạng thái của socket server, và ProjectSocketClient để báo cho server khi ghi từ máy client
+    private static final List<IntConsumer> statusChangeListeners = new CopyOnWriteArrayList<>();
 
-    public ProjectDAO(Connection connection) {
-        this.connection = connection;
+    private final DataSource dataSource;
+    private final ProjectStatsStore statsStore;
+    // true: tải file/bình luận bằng truy vấn IN (...) theo lô; false: mỗi dự án 2 truy vấn riêng (cách cũ)
+    private volatile boolean batchLoading = true;
+
+    public ProjectDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.statsStore = new ProjectStatsStore(dataSource);
+    }
+
+    public void setBatchLoading(boolean batchLoading) {
+        this.batchLoading = batchLoading;
+    }
+
+    public boolean isBatchLoading() {
+        return batchLoading;
     }
     //Tìm tất cả các dự án
     public List<Project> findAll() throws SQLException {
-        List<Project> projects = new ArrayList<>();
-        String sql = "SELECT p.project_id, p.title, p.description, p.ngay_bat_dau, p.ngay_ket_thuc, p.ngay_nop, p.status, " +
-                "p.process_score, p.defense_score, p.final_score, p.grade, " +
-                "s.full_name AS student_name, t.full_name AS teacher_name, s.student_id, t.teacher_id " +
-                "FROM projects p " +
-                "LEFT JOIN students s ON p.student_id = s.student_id " +
-                "LEFT JOIN teachers t ON p.teacher_id = t.teacher_id";
-
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Project p = new Project(
-                        rs.getInt("project_id"),
-                        rs.getString("title"),
-                        rs.getString("description"),
-                        rs.getDate("ngay_bat_dau"),
-                        rs.getDate("ngay_ket_thuc"),
-                        rs.getDate("ngay_nop"),
-                        loadFilePaths(rs.getInt("project_id")),
-                        loadComments(rs.getInt("project_id")),
-                        rs.getInt("student_id"),
-                        rs.getInt("teacher_id")
-                );
-                p.setStudentName(rs.getString("student_name"));
-                p.setTeacherName(rs.getString("teacher_name"));
-                p.setStatus(rs.getString("status"));
-                p.setProcessScore(rs.getObject("process_score") != null ? rs.getDouble("process_score") : null);
-                p.setDefenseScore(rs.getObject("defense_score") != null ? rs.getDouble("defense_score") : null);
-                p.setFinalScore(rs.getObject("final_score") != null ? rs.getDouble("final_score") : null);
-                p.setGrade(rs.getString("grade"));
-                projects.add(p);
-            }
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(PROJECT_SELECT)) {
+            return readProjects(connection, rs);
         }
-        return projects;
     }
     // Tìm dự án theo ID
     public Project findById(int projectId) throws SQLException {
-        String sql = "SELECT p.project_id, p.title, p.description, p.ngay_bat_dau, p.ngay_ket_thuc, p.ngay_nop, p.status, " +
-                "p.process_score, p.defense_score, p.final_score, p.grade, " +
-                "s.full_name AS student_name, t.full_name AS teacher_name, s.student_id, t.teacher_id " +
-                "FROM projects p " +
-                "LEFT JOIN students s ON p.student_id = s.student_id " +
-                "LEFT JOIN teachers t ON p.teacher_id = t.teacher_id " +
-                "WHERE p.project_id = ?";
+        String sql = PROJECT_SELECT + " WHERE p.project_id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, projectId);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                Project p = new Project(
-                        rs.getInt("project_id"),
-                        rs.getString("title"),
-                        rs.getString("description"),
-                        rs.getDate("ngay_bat_dau"),
-                        rs.getDate("ngay_ket_thuc"),
-                        rs.getDate("ngay_nop"),
-                        loadFilePaths(projectId),
-                        loadComments(projectId),
-                        rs.getInt("student_id"),
-                        rs.getInt("teacher_id")
-                );
-                p.setStudentName(rs.getString("student_name"));
-                p.setTeacherName(rs.getString("teacher_name"));
-                p.setStatus(rs.getString("status"));
-                p.setProcessScore(rs.getObject("process_score") != null ? rs.getDouble("process_score") : null);
-                p.setDefenseScore(rs.getObject("defense_score") != null ? rs.getDouble("defense_score") : null);
-                p.setFinalScore(rs.getObject("final_score") != null ? rs.getDouble("final_score") : null);
-                p.setGrade(rs.getString("grade"));
-                return p;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<Project> projects = readProjects(connection, rs);
+                return projects.isEmpty() ? null : projects.get(0);
             }
         }
-        return null;
     }
     // Tìm kiếm dự án theo tiêu đề hoặc ID sinh viên
     public List<Project> searchByTitleOrStudentId(String keyword) throws SQLException {
-        List<Project> projects = new ArrayList<>();
-        String sql = "SELECT p.project_id, p.title, p.description, p.ngay_bat_dau, p.ngay_ket_thuc, p.ngay_nop, p.status, " +
-                "p.process_score, p.defense_score, p.final_score, p.grade, " +
-                "s.full_name AS student_name, t.full_name AS teacher_name, s.student_id, t.teacher_id " +
-                "FROM projects p " +
-                "LEFT JOIN students s ON p.student_id = s.student_id " +
-                "LEFT JOIN teachers t ON p.teacher_id = t.teacher_id " +
-                "WHERE p.title LIKE ? OR CAST(s.student_id AS CHAR) LIKE ?";
+        String sql = PROJECT_SELECT + " WHERE p.title LIKE ? OR CAST(s.student_id AS CHAR) LIKE ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, "%" + keyword + "%");
             pstmt.setString(2, "%" + keyword + "%");
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                Project p = new Project(
-                        rs.getInt("project_id"),
-                        rs.getString("title"),
-                        rs.getString("description"),
-                        rs.getDate("ngay_bat_dau"),
-                        rs.getDate("ngay_ket_thuc"),
-                        rs.getDate("ngay_nop"),
-                        loadFilePaths(rs.getInt("project_id")),
-                        loadComments(rs.getInt("project_id")),
-                        rs.getInt("student_id"),
-                        rs.getInt("teacher_id")
-                );
-                p.setStudentName(rs.getString("student_name"));
-                p.setTeacherName(rs.getString("teacher_name"));
-                p.setStatus(rs.getString("status"));
-                p.setProcessScore(rs.getObject("process_score") != null ? rs.getDouble("process_score") : null);
-                p.setDefenseScore(rs.getObject("defense_score") != null ? rs.getDouble("defense_score") : null);
-                p.setFinalScore(rs.getObject("final_score") != null ? rs.getDouble("final_score") : null);
-                p.setGrade(rs.getString("grade"));
-                projects.add(p);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return readProjects(connection, rs);
+            }
+        }
+    }
+    // Dự án của một sinh viên (student_id lấy từ phiên đăng nhập)
+    public List<Project> findByStudentId(int studentId) throws SQLException {
+        return queryProjects(PROJECT_SELECT + " WHERE p.student_id = ? ORDER BY p.project_id", studentId);
+    }
+    // Dự án do giảng viên hướng dẫn, theo teacher_id
+    public List<Project> findByTeacherId(int teacherId) throws SQLException {
+        return queryProjects(PROJECT_SELECT + " WHERE p.teacher_id = ? ORDER BY p.project_id", teacherId);
+    }
+    // Trang kế tiếp theo keyset: các dự án có project_id > afterProjectId (trang đầu truyền 0).
+    // Seek trên khóa chính nên chi phí mỗi trang không tăng theo số trang đã đọc như OFFSET
+    public List<Project> findPageAfter(int afterProjectId, int pageSize) throws SQLException {
+        return queryProjects(PROJECT_SELECT + " WHERE p.project_id > ? ORDER BY p.project_id LIMIT ?",
+                afterProjectId, pageSize);
+    }
+    // Trang keyset trong phạm vi dự án của một sinh viên
+    public List<Project> findPageAfterByStudentId(int studentId, int afterProjectId, int pageSize) throws SQLException {
+        return queryProjects(PROJECT_SELECT + " WHERE p.student_id = ? AND p.project_id > ? ORDER BY p.project_id LIMIT ?",
+                studentId, afterProjectId, pageSize);
+    }
+    // Trang keyset trong phạm vi dự án của một giảng viên
+    public List<Project> findPageAfterByTeacherId(int teacherId, int afterProjectId, int pageSize) throws SQLException {
+        return queryProjects(PROJECT_SELECT + " WHERE p.teacher_id = ? AND p.project_id > ? ORDER BY p.project_id LIMIT ?",
+                teacherId, afterProjectId, pageSize);
+    }
+    // Duyệt toàn bộ dự án (kèm file và bình luận) theo từng trang keyset; chỉ giữ một trang trong bộ nhớ
+    public void forEachPage(int pageSize, Consumer<List<Project>> action) throws SQLException {
+        int lastId = 0;
+        List<Project> page;
+        do {
+            page = findPageAfter(lastId, pageSize);
+            if (!page.isEmpty()) {
+                action.accept(page);
+                lastId = page.get(page.size() - 1).getProjectId();
+            }
+        } while (page.size() == pageSize);
+    }
+    // Đọc tuần tự toàn bộ dự án bằng ResultSet forward-only đọc dần từ server, không giữ cả bảng trong bộ nhớ.
+    // Không tải file/bình luận (kết nối đang bận với ResultSet); dùng cho thống kê, xuất dữ liệu
+    public void streamAll(Consumer<Project> action) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(PROJECT_SELECT + " ORDER BY p.project_id",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Connector/J chỉ đọc từng dòng từ server khi fetchSize = Integer.MIN_VALUE; bật riêng cho câu này thay vì
+            // useCursorFetch trên URL (tham số đó bật server prepared statement cho mọi kết nối)
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapProject(rs));
+                }
+            }
+        }
+    }
+    // Tìm kiếm trong phạm vi dự án của một sinh viên
+    public List<Project> searchByStudentId(int studentId, String keyword) throws SQLException {
+        return queryProjects(PROJECT_SELECT + " WHERE p.student_id = ? AND (p.title LIKE ? OR CAST(s.student_id AS CHAR) LIKE ?)",
+                studentId, "%" + keyword + "%", "%" + keyword + "%");
+    }
+    // Tìm kiếm trong phạm vi dự án của một giảng viên
+    public List<Project> searchByTeacherId(int teacherId, String keyword) throws SQLException {
+        return queryProjects(PROJECT_SELECT + " WHERE p.teacher_id = ? AND (p.title LIKE ? OR CAST(s.student_id AS CHAR) LIKE ?)",
+                teacherId, "%" + keyword + "%", "%" + keyword + "%");
+    }
+
+    private List<Project> queryProjects(String sql, Object... params) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return readProjects(connection, rs);
             }
         }
+    }
+    // Đọc các dòng dự án rồi gắn danh sách file và bình luận cho từng dự án
+    private List<Project> readProjects(Connection connection, ResultSet rs) throws SQLException {
+        List<Project> projects = new ArrayList<>();
+        boolean batch = batchLoading;
+        while (rs.next()) {
+            Project p = mapProject(rs);
+            if (!batch) {
+                p.setFilePaths(loadFilePaths(connection, p.getProjectId()));
+                p.setComments(loadComments(connection, p.getProjectId()));
+            }
+            projects.add(p);
+        }
+        if (batch && !projects.isEmpty()) {
+            loadChildrenBatch(connection, projects);
+        }
         return projects;
     }
+
+    private Project mapProject(ResultSet rs) throws SQLException {
+        Project p = new Project(
+                rs.getInt("project_id"),
+                rs.getString("title"),
+                rs.getString("description"),
+                rs.getDate("ngay_bat_dau"),
+                rs.getDate("ngay_ket_thuc"),
+                rs.getDate("ngay_nop"),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                rs.getInt("student_id"),
+                rs.getInt("teacher_id")
+        );
+        p.setStudentName(rs.getString("student_name"));
+        p.setTeacherName(rs.getString("teacher_name"));
+        p.setStatus(rs.getString("status"));
+        p.setProcessScore(rs.getObject("process_score") != null ? rs.getDouble("process_score") : null);
+        p.setDefenseScore(rs.getObject("defense_score") != null ? rs.getDouble("defense_score") : null);
+        p.setFinalScore(rs.getObject("final_score") != null ? rs.getDouble("final_score") : null);
+        p.setGrade(rs.getString("grade"));
+        return p;
+    }
+    // Tải file và bình luận của nhiều dự án: mỗi bảng một truy vấn IN (...) cho mỗi lô id
+    private void loadChildrenBatch(Connection connection, List<Project> projects) throws SQLException {
+        Map<Integer, Project> byId = new HashMap<>();
+        for (Project p : projects) {
+            byId.put(p.getProjectId(), p);
+        }
+        List<Integer> ids = new ArrayList<>(byId.keySet());
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+
+            String filesSql = "SELECT project_id, file_path FROM project_files WHERE project_id IN (" + placeholders + ")";
+            try (PreparedStatement pstmt = connection.prepareStatement(filesSql)) {
+                bindIds(pstmt, chunk);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        byId.get(rs.getInt("project_id")).getFilePaths().add(rs.getString("file_path"));
+                    }
+                }
+            }
+
+            String commentsSql = "SELECT project_id, comment FROM project_comments WHERE project_id IN (" + placeholders + ")";
+            try (PreparedStatement pstmt = connection.prepareStatement(commentsSql)) {
+                bindIds(pstmt, chunk);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        byId.get(rs.getInt("project_id")).getComments().add(rs.getString("comment"));
+                    }
+                }
+            }
+        }
+    }
+
+    // Các truy vấn projection dưới đây chỉ đọc những cột cần thiết, không join và không tải file/bình luận,
+    // dành cho các thao tác không cần cả đối tượng Project như findById
+    public ProjectScoreView findScoreById(int projectId) throws SQLException {
+        String sql = "SELECT project_id, title, teacher_id, process_score, defense_score, final_score, grade " +
+                "FROM projects WHERE project_id = ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, projectId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new ProjectScoreView(rs.getInt("project_id"), rs.getString("title"), rs.getInt("teacher_id"),
+                        rs.getObject("process_score") != null ? rs.getDouble("process_score") : null,
+                        rs.getObject("defense_score") != null ? rs.getDouble("defense_score") : null,
+                        rs.getObject("final_score") != null ? rs.getDouble("final_score") : null,
+                        rs.getString("grade"));
+            }
+        }
+    }
+
+    // Một dòng như trong danh sách dự án (kèm tên sinh viên/giảng viên) nhưng filePaths và comments để trống
+    public Project findRowById(int projectId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(PROJECT_SELECT + " WHERE p.project_id = ?")) {
+            pstmt.setInt(1, projectId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapProject(rs) : null;
+            }
+        }
+    }
+
+    // File nộp gần nhất của dự án (giống Project.getLatestFilePath), null nếu chưa có file
+    public String findLatestFilePath(int projectId) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            List<String> filePaths = loadFilePaths(connection, projectId);
+            return filePaths.isEmpty() ? null : filePaths.get(filePaths.size() - 1);
+        }
+    }
+
+    // Cập nhật trạng thái; ngayNop = null thì giữ nguyên ngày nộp hiện có. Trả về trạng thái đọc lại trong cùng
+    // transaction (như commitUpload), null nếu dự án không tồn tại
+    public ProjectStatusView updateStatus(int projectId, String status, java.util.Date ngayNop) throws SQLException {
+        String sql = "UPDATE projects SET status = ?, ngay_nop = COALESCE(?, ngay_nop) WHERE project_id = ?";
+        statsStore.ensureTable();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                ProjectStatsStore.Contribution old = ProjectStatsStore.readForUpdate(connection, projectId);
+                if (old == null) {
+                    connection.rollback();
+                    return null;
+                }
+                pstmt.setString(1, status);
+                pstmt.setDate(2, ngayNop != null ? new java.sql.Date(ngayNop.getTime()) : null);
+                pstmt.setInt(3, projectId);
+                pstmt.executeUpdate();
+                ProjectStatusView state = readStatus(connection, projectId);
+                commitStats(connection, old, old.withStatus(status));
+                fireStatusChanged(projectId);
+                return state;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Ghi nhận file vừa upload trong một transaction: cập nhật ngay_nop trước (khóa dòng dự án, nên các upload
+    // cùng dự án nối tiếp nhau còn upload khác dự án chạy song song), thêm dòng project_files rồi đọc lại trạng thái.
+    // Trả về null nếu dự án không còn tồn tại
+    public ProjectStatusView commitUpload(int projectId, String filePath, java.util.Date ngayNop) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "UPDATE projects SET ngay_nop = ? WHERE project_id = ?")) {
+                    pstmt.setDate(1, new java.sql.Date(ngayNop.getTime()));
+                    pstmt.setInt(2, projectId);
+                    if (pstmt.executeUpdate() == 0) {
+                        connection.rollback();
+                        return null;
+                    }
+                }
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "INSERT INTO project_files (project_id, file_path) VALUES (?, ?)")) {
+                    pstmt.setInt(1, projectId);
+                    pstmt.setString(2, filePath);
+                    pstmt.executeUpdate();
+                }
+                ProjectStatusView state = readStatus(connection, projectId);
+                connection.commit();
+                fireStatusChanged(projectId);
+                return state;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Đọc lại trạng thái trên connection của transaction đang giữ khóa dòng dự án
+    private ProjectStatusView readStatus(Connection connection, int projectId) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT project_id, title, status, ngay_nop FROM projects WHERE project_id = ?")) {
+            pstmt.setInt(1, projectId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return mapStatusView(rs);
+            }
+        }
+    }
+
+    // Trạng thái của nhiều dự án chỉ với một truy vấn IN (...) trên bảng projects cho mỗi lô id, không join
+    // và không tải file/bình luận. Id không tồn tại thì không có trong kết quả
+    public List<ProjectStatusView> findStatusesByIds(List<Integer> projectIds) throws SQLException {
+        List<ProjectStatusView> statuses = new ArrayList<>();
+        if (projectIds.isEmpty()) {
+            return statuses;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            for (int from = 0; from < projectIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                List<Integer> chunk = projectIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, projectIds.size()));
+                String sql = "SELECT project_id, title, status, ngay_nop FROM projects WHERE project_id IN (" +
+                        String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                    bindIds(pstmt, chunk);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            statuses.add(mapStatusView(rs));
+                        }
+                    }
+                }
+            }
+        }
+        return statuses;
+    }
+
+    private ProjectStatusView mapStatusView(ResultSet rs) throws SQLException {
+        return new ProjectStatusView(rs.getInt("project_id"), rs.getString("title"), rs.getString("status"),
+                rs.getDate("ngay_nop"));
+    }
+
+    private static void bindIds(PreparedStatement pstmt, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            pstmt.setInt(i + 1, ids.get(i));
+        }
+    }
     // Thêm dự án mới
     public boolean addProject(Project project) throws SQLException {
         String sql = "INSERT INTO projects (title, description, ngay_bat_dau, ngay_ket_thuc, status, student_id, teacher_id) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, project.getTitle());
-            pstmt.setString(2, project.getDescription());
-            pstmt.setDate(3, new java.sql.Date(project.getNgayBatDau().getTime()));
-            pstmt.setDate(4, new java.sql.Date(project.getNgayKetThuc().getTime()));
-            pstmt.setString(5, project.getStatus());
-            pstmt.setInt(6, project.getStudentId());
-            pstmt.setInt(7, project.getTeacherId());
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
+        statsStore.ensureTable();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, project.getTitle());
+                pstmt.setString(2, project.getDescription());
+                pstmt.setDate(3, new java.sql.Date(project.getNgayBatDau().getTime()));
+                pstmt.setDate(4, new java.sql.Date(project.getNgayKetThuc().getTime()));
+                pstmt.setString(5, project.getStatus());
+                pstmt.setInt(6, project.getStudentId());
+                pstmt.setInt(7, project.getTeacherId());
+                int affectedRows = pstmt.executeUpdate();
+                if (affectedRows == 0) {
+                    connection.rollback();
+                    return false;
+                }
                 try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
                         project.setProjectId(generatedKeys.getInt(1));
                     }
                 }
+                // Dự án mới chưa có điểm
+                commitStats(connection, null, new ProjectStatsStore.Contribution(
+                        project.getTeacherId(), project.getStatus(), null, null, null, null));
                 return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
             }
         }
-        return false;
     }
     // Cập nhật thông tin dự án
     public boolean updateProject(Project project) throws SQLException {
@@ -160,52 +419,86 @@ public class ProjectDAO {
                 "final_score = ?, grade = ? " +
                 "WHERE project_id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, project.getTitle());
-            pstmt.setString(2, project.getDescription());
-            pstmt.setDate(3, new java.sql.Date(project.getNgayBatDau().getTime()));
-            pstmt.setDate(4, new java.sql.Date(project.getNgayKetThuc().getTime()));
-            pstmt.setString(5, project.getStatus());
-            pstmt.setInt(6, project.getStudentId());
-            pstmt.setInt(7, project.getTeacherId());
-            pstmt.setDate(8, project.getNgayNop() != null ? new java.sql.Date(project.getNgayNop().getTime()) : null);
-            pstmt.setObject(9, project.getProcessScore());
-            pstmt.setObject(10, project.getDefenseScore());
-            pstmt.setObject(11, project.getFinalScore());
-            pstmt.setString(12, project.getGrade());
-            pstmt.setInt(13, project.getProjectId());
-            return pstmt.executeUpdate() > 0;
+        statsStore.ensureTable();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                ProjectStatsStore.Contribution old = ProjectStatsStore.readForUpdate(connection, project.getProjectId());
+                if (old == null) {
+                    connection.rollback();
+                    return false;
+                }
+                pstmt.setString(1, project.getTitle());
+                pstmt.setString(2, project.getDescription());
+                pstmt.setDate(3, new java.sql.Date(project.getNgayBatDau().getTime()));
+                pstmt.setDate(4, new java.sql.Date(project.getNgayKetThuc().getTime()));
+                pstmt.setString(5, project.getStatus());
+                pstmt.setInt(6, project.getStudentId());
+                pstmt.setInt(7, project.getTeacherId());
+                pstmt.setDate(8, project.getNgayNop() != null ? new java.sql.Date(project.getNgayNop().getTime()) : null);
+                pstmt.setObject(9, project.getProcessScore());
+                pstmt.setObject(10, project.getDefenseScore());
+                pstmt.setObject(11, project.getFinalScore());
+                pstmt.setString(12, project.getGrade());
+                pstmt.setInt(13, project.getProjectId());
+                pstmt.executeUpdate();
+                commitStats(connection, old, new ProjectStatsStore.Contribution(project.getTeacherId(),
+                        project.getStatus(), project.getGrade(), project.getProcessScore(),
+                        project.getDefenseScore(), project.getFinalScore()));
+                fireStatusChanged(project.getProjectId());
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
         }
     }
     // Xóa dự án
     public boolean deleteProject(int projectId) throws SQLException {
         String sql = "DELETE FROM projects WHERE project_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, projectId);
-            return pstmt.executeUpdate() > 0;
+        statsStore.ensureTable();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                ProjectStatsStore.Contribution old = ProjectStatsStore.readForUpdate(connection, projectId);
+                if (old == null) {
+                    connection.rollback();
+                    return false;
+                }
+                pstmt.setInt(1, projectId);
+                pstmt.executeUpdate();
+                commitStats(connection, old, null);
+                fireStatusChanged(projectId);
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
         }
     }
-    // Thêm tệp vào dự án
-    public boolean addFile(int projectId, String filePath) throws SQLException {
-        String sql = "INSERT INTO project_files (project_id, file_path) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, projectId);
-            pstmt.setString(2, filePath);
-            return pstmt.executeUpdate() > 0;
-        }
+    public static void addStatusChangeListener(IntConsumer listener) {
+        statusChangeListeners.add(listener);
     }
-    // Thêm bình luận vào dự án
-    public boolean addComment(int projectId, int teacherId, String comment) throws SQLException {
-        String sql = "INSERT INTO project_comments (project_id, teacher_id, comment) VALUES (?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, projectId);
-            pstmt.setInt(2, teacherId);
-            pstmt.setString(3, comment);
-            return pstmt.executeUpdate() > 0;
+
+    public static void removeStatusChangeListener(IntConsumer listener) {
+        statusChangeListeners.remove(listener);
+    }
+
+    private static void fireStatusChanged(int projectId) {
+        for (IntConsumer listener : statusChangeListeners) {
+            listener.accept(projectId);
         }
     }
+    // Ghi phần thay đổi của project_stats rồi commit cùng lệnh ghi vào projects
+    private static void commitStats(Connection connection, ProjectStatsStore.Contribution old,
+                                    ProjectStatsStore.Contribution current) throws SQLException {
+        ProjectStatsStore.Delta delta = new ProjectStatsStore.Delta();
+        delta.replace(old, current);
+        delta.flush(connection);
+        connection.commit();
+    }
     // Tải đường dẫn tệp và bình luận từ cơ sở dữ liệu
-    private List<String> loadFilePaths(int projectId) throws SQLException {
+    private List<String> loadFilePaths(Connection connection, int projectId) throws SQLException {
         List<String> filePaths = new ArrayList<>();
         String sql = "SELECT file_path FROM project_files WHERE project_id = ?";
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
@@ -218,7 +511,7 @@ public class ProjectDAO {
         return filePaths;
     }
     // Tải bình luận từ cơ sở dữ liệu
-    private List<String> loadComments(int projectId) throws SQLException {
+    private List<String> loadComments(Connection connection, int projectId) throws SQLException {
         List<String> comments = new ArrayList<>();
         String sql = "SELECT comment FROM project_comments WHERE project_id = ?";
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
@@ -236,57 +529,54 @@ public class ProjectDAO {
                 "SET process_score = ?, defense_score = ?, final_score = ?, grade = ? " +
                 "WHERE project_id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            // Set process score
-            if (processScore != null) {
-                pstmt.setDouble(1, processScore);
-            } else {
-                pstmt.setNull(1, Types.DOUBLE);
-            }
-
-            // Set defense score
-            if (defenseScore != null) {
-                pstmt.setDouble(2, defenseScore);
-            } else {
-                pstmt.setNull(2, Types.DOUBLE);
-            }
-
-            // Calculate final score
-            Double finalScore = null;
-            if (processScore != null && defenseScore != null) {
-                finalScore = 0.3 * processScore + 0.7 * defenseScore;
-                pstmt.setDouble(3, finalScore);
-            } else {
-                pstmt.setNull(3, Types.DOUBLE);
-            }
+        statsStore.ensureTable();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                ProjectStatsStore.Contribution old = ProjectStatsStore.readForUpdate(connection, projectId);
+                if (old == null) {
+                    connection.rollback();
+                    return false;
+                }
 
-            // Calculate grade
-            String grade = null;
-            if (finalScore != null) {
-                if (finalScore >= 8.5) grade = "A";
-                else if (finalScore >= 7.0) grade = "B";
-                else if (finalScore >= 5.5) grade = "C";
-                else if (finalScore >= 4.0) grade = "D";
-                else grade = "F";
-            }
+                // Set process score
+                if (processScore != null) {
+                    pstmt.setDouble(1, processScore);
+                } else {
+                    pstmt.setNull(1, Types.DOUBLE);
+                }
 
-            if (grade != null) {
-                pstmt.setString(4, grade);
-            } else {
-                pstmt.setNull(4, Types.VARCHAR);
-            }
+                // Set defense score
+                if (defenseScore != null) {
+                    pstmt.setDouble(2, defenseScore);
+                } else {
+                    pstmt.setNull(2, Types.DOUBLE);
+                }
 
-            pstmt.setInt(5, projectId);
+                // Calculate final score
+                Double finalScore = GradingPolicy.current().finalScore(processScore, defenseScore);
+                if (finalScore != null) {
+                    pstmt.setDouble(3, finalScore);
+                } else {
+                    pstmt.setNull(3, Types.DOUBLE);
+                }
 
-            int rowsUpdated = pstmt.executeUpdate();
+                // Calculate grade
+                String grade = GradingPolicy.current().grade(finalScore);
+                if (grade != null) {
+                    pstmt.setString(4, grade);
+                } else {
+                    pstmt.setNull(4, Types.VARCHAR);
+                }
 
-            // Ensure commit if auto-commit is off
-            if (!connection.getAutoCommit()) {
-                connection.commit();
+                pstmt.setInt(5, projectId);
+                pstmt.executeUpdate();
+                commitStats(connection, old, old.withScores(processScore, defenseScore, finalScore, grade));
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
             }
-
-            return rowsUpdated > 0;
         }
     }
-
-}
\ No newline at end of file
+}
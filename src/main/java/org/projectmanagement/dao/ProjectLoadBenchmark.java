@@ -0,0 +1,123 @@
+package org.projectmanagement.dao;
+
+import org.projectmanagement.models.Project;
+import org.projectmanagement.util.DBConnection;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// So sánh số round trip và độ trễ của ProjectDAO.findAll() giữa cách tải cũ (mỗi dự án 2 truy vấn)
+// và cách tải theo lô (IN (...)). Chạy trên database đã cấu hình trong DBConnection:
+//   java -cp ... org.projectmanagement.dao.ProjectLoadBenchmark [số lần lặp]
+public class ProjectLoadBenchmark {
+    private static final AtomicLong roundTrips = new AtomicLong();
+
+    public static void main(String[] args) throws SQLException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        DataSource counting = countingDataSource(DBConnection.getDataSource());
+        ProjectDAO projectDAO = new ProjectDAO(counting);
+
+        try {
+            projectDAO.setBatchLoading(false);
+            List<Project> perRow = run(projectDAO, "Tải từng dòng (N+1)", iterations);
+
+            projectDAO.setBatchLoading(true);
+            List<Project> batched = run(projectDAO, "Tải theo lô (IN)", iterations);
+
+            System.out.println("Kết quả giống nhau: " + sameContent(perRow, batched));
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+
+    private static List<Project> run(ProjectDAO projectDAO, String label, int iterations) throws SQLException {
+        // Chạy khởi động để JIT và cache của MySQL ổn định
+        List<Project> result = projectDAO.findAll();
+
+        roundTrips.set(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            result = projectDAO.findAll();
+        }
+        double avgMs = (System.nanoTime() - start) / 1_000_000.0 / iterations;
+        System.out.printf("%-22s %6d dự án | %7d round trip/lần | %9.2f ms/lần%n",
+                label, result.size(), roundTrips.get() / iterations, avgMs);
+        return result;
+    }
+
+    private static boolean sameContent(List<Project> a, List<Project> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            Project x = a.get(i);
+            Project y = b.get(i);
+            if (x.getProjectId() != y.getProjectId()
+                    || !x.getFilePaths().equals(y.getFilePaths())
+                    || !x.getComments().equals(y.getComments())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Bọc DataSource để đếm mỗi lần execute* trên Statement là một round trip
+    private static DataSource countingDataSource(DataSource target) {
+        return (DataSource) Proxy.newProxyInstance(ProjectLoadBenchmark.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    if (result instanceof Connection) {
+                        return countingConnection((Connection) result);
+                    }
+                    return result;
+                });
+    }
+
+    private static Connection countingConnection(Connection target) {
+        return (Connection) Proxy.newProxyInstance(ProjectLoadBenchmark.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    if (result instanceof Statement) {
+                        return countingStatement((Statement) result);
+                    }
+                    return result;
+                });
+    }
+
+    private static Statement countingStatement(Statement target) {
+        return (Statement) Proxy.newProxyInstance(ProjectLoadBenchmark.class.getClassLoader(),
+                statementInterfaces(target), (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        roundTrips.incrementAndGet();
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private static Class<?>[] statementInterfaces(Statement target) {
+        if (target instanceof CallableStatement) {
+            return new Class<?>[]{CallableStatement.class};
+        }
+        if (target instanceof PreparedStatement) {
+            return new Class<?>[]{PreparedStatement.class};
+        }
+        return new Class<?>[]{Statement.class};
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
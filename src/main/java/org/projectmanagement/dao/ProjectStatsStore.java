@@ -0,0 +1,390 @@
+package org.projectmanagement.dao;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Bảng thống kê tổng hợp sẵn project_stats: mỗi dòng là một nhóm (teacher_id, status, grade) với số đồ án và
+// tổng/số lượng từng loại điểm. Số dòng chỉ phụ thuộc số giảng viên, không phụ thuộc số đồ án, nên đọc thống kê
+// không phải quét bảng projects.
+// Các lệnh ghi vào projects cập nhật bảng này ngay trong cùng transaction: đọc dòng cũ bằng FOR UPDATE, trừ phần
+// đóng góp cũ và cộng phần đóng góp mới (xem Delta). reconcile() so bảng với projects và chỉ sửa các nhóm sai lệch
+// do các thay đổi không đi qua DAO (sửa tay trong MySQL, xóa giảng viên...).
+public class ProjectStatsStore {
+    private static final String CREATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS project_stats (" +
+            "teacher_id INT NOT NULL, " +
+            "status VARCHAR(20) NOT NULL, " +
+            "grade VARCHAR(5) NOT NULL, " +
+            "project_count BIGINT NOT NULL DEFAULT 0, " +
+            "process_sum DOUBLE NOT NULL DEFAULT 0, process_count BIGINT NOT NULL DEFAULT 0, " +
+            "defense_sum DOUBLE NOT NULL DEFAULT 0, defense_count BIGINT NOT NULL DEFAULT 0, " +
+            "final_sum DOUBLE NOT NULL DEFAULT 0, final_count BIGINT NOT NULL DEFAULT 0, " +
+            "PRIMARY KEY (teacher_id, status, grade))";
+    private static final String UPSERT_SQL =
+            "INSERT INTO project_stats (teacher_id, status, grade, project_count, process_sum, process_count, " +
+            "defense_sum, defense_count, final_sum, final_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE project_count = project_count + VALUES(project_count), " +
+            "process_sum = process_sum + VALUES(process_sum), process_count = process_count + VALUES(process_count), " +
+            "defense_sum = defense_sum + VALUES(defense_sum), defense_count = defense_count + VALUES(defense_count), " +
+            "final_sum = final_sum + VALUES(final_sum), final_count = final_count + VALUES(final_count)";
+    // teacher_id/status/grade NULL được lưu thành 0/'' vì là khóa chính
+    private static final String TRUTH_SQL =
+            "SELECT COALESCE(teacher_id, 0) AS teacher_id, COALESCE(status, '') AS status, " +
+            "COALESCE(grade, '') AS grade, COUNT(*) AS project_count, " +
+            "COALESCE(SUM(process_score), 0) AS process_sum, COUNT(process_score) AS process_count, " +
+            "COALESCE(SUM(defense_score), 0) AS defense_sum, COUNT(defense_score) AS defense_count, " +
+            "COALESCE(SUM(final_score), 0) AS final_sum, COUNT(final_score) AS final_count " +
+            "FROM projects GROUP BY COALESCE(teacher_id, 0), COALESCE(status, ''), COALESCE(grade, '')";
+    private static final String SUMMARY_SQL =
+            "SELECT teacher_id, status, grade, project_count, process_sum, process_count, " +
+            "defense_sum, defense_count, final_sum, final_count FROM project_stats";
+    // Nhóm không còn đồ án nào sau khi đối soát
+    private static final String DELETE_EMPTY_SQL =
+            "DELETE FROM project_stats WHERE project_count = 0 AND process_count = 0 " +
+            "AND defense_count = 0 AND final_count = 0";
+    // Chênh lệch tổng điểm nhỏ hơn mức này là sai số làm tròn của phép cộng dồn, không cần sửa
+    private static final double SUM_TOLERANCE = 1e-6;
+    private static final String CONTRIBUTION_SQL =
+            "SELECT teacher_id, status, grade, process_score, defense_score, final_score FROM projects " +
+            "WHERE project_id = ? FOR UPDATE";
+
+    // Khóa tên của MySQL (GET_LOCK) cho việc đối soát: server và các client desktop cùng ghi một DB, hai lượt đối soát
+    // chạy chồng nhau sẽ cộng phần chênh lệch hai lần
+    private static final String RECONCILE_LOCK = "project_stats_reconcile";
+    private static final int RECONCILE_LOCK_TIMEOUT_SECONDS = Integer.getInteger("stats.reconcileLockTimeoutSeconds", 60);
+
+    private static volatile boolean tableReady;
+
+    private final DataSource dataSource;
+
+    public ProjectStatsStore(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // Tạo bảng ở lần dùng đầu tiên; bảng mới tạo (hoặc đang rỗng trong khi đã có đồ án) được dựng lại ngay.
+    // Kiểm tra rỗng và dựng lại cùng nằm trong khóa đối soát: tiến trình khác đã dựng xong thì không dựng lần nữa
+    public void ensureTable() throws SQLException {
+        if (tableReady) {
+            return;
+        }
+        synchronized (ProjectStatsStore.class) {
+            if (tableReady) {
+                return;
+            }
+            try (Connection lockConnection = dataSource.getConnection();
+                 Statement stmt = lockConnection.createStatement()) {
+                stmt.execute(CREATE_TABLE_SQL);
+                acquireReconcileLock(lockConnection);
+                try {
+                    boolean empty;
+                    try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM project_stats LIMIT 1")) {
+                        empty = !rs.next();
+                    }
+                    if (empty) {
+                        reconcileLocked();
+                    }
+                } finally {
+                    releaseReconcileLock(lockConnection);
+                }
+            }
+            tableReady = true;
+        }
+    }
+
+    // Sửa project_stats cho khớp với bảng projects mà không chặn các lệnh ghi đang chạy:
+    // 1. Đọc kết quả GROUP BY trên projects và nội dung project_stats trong cùng một snapshot (hai SELECT thường
+    //    trong một transaction REPEATABLE READ, không khóa dòng nào). Lệnh ghi cập nhật projects và project_stats
+    //    trong cùng transaction nên hai kết quả này nhất quán với nhau.
+    // 2. Phần chênh lệch (đúng - đang có) được ghi bằng upsert cộng dồn như Delta, trong một transaction ngắn.
+    //    Vì là cộng dồn, phần thay đổi của các lệnh ghi commit sau snapshot vẫn được giữ nguyên.
+    // Chỉ một lượt đối soát chạy tại một thời điểm trên toàn DB (RECONCILE_LOCK); snapshot được lấy sau khi có khóa
+    // nên thấy phần sửa của lượt trước. Trả về số nhóm phải sửa
+    public int reconcile() throws SQLException {
+        try (Connection lockConnection = dataSource.getConnection()) {
+            acquireReconcileLock(lockConnection);
+            try {
+                return reconcileLocked();
+            } finally {
+                releaseReconcileLock(lockConnection);
+            }
+        }
+    }
+
+    // Khóa gắn với phiên MySQL của lockConnection; kết nối trả về pool không đóng phiên nên phải nhả khóa tường minh
+    private static void acquireReconcileLock(Connection lockConnection) throws SQLException {
+        try (PreparedStatement pstmt = lockConnection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, RECONCILE_LOCK);
+            pstmt.setInt(2, RECONCILE_LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Không lấy được khóa đối soát project_stats sau "
+                            + RECONCILE_LOCK_TIMEOUT_SECONDS + " giây");
+                }
+            }
+        }
+    }
+
+    private static void releaseReconcileLock(Connection lockConnection) throws SQLException {
+        try (PreparedStatement pstmt = lockConnection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, RECONCILE_LOCK);
+            pstmt.executeQuery().close();
+        }
+    }
+
+    private int reconcileLocked() throws SQLException {
+        Map<String, Bucket> truth;
+        Map<String, Bucket> summary;
+        try (Connection connection = dataSource.getConnection()) {
+            int isolation = connection.getTransactionIsolation();
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement()) {
+                truth = readBuckets(stmt, TRUTH_SQL);
+                summary = readBuckets(stmt, SUMMARY_SQL);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+                connection.setTransactionIsolation(isolation);
+            }
+        }
+
+        Delta delta = new Delta();
+        int fixed = 0;
+        for (Map.Entry<String, Bucket> e : truth.entrySet()) {
+            Bucket current = summary.remove(e.getKey());
+            if (current == null || !e.getValue().matches(current)) {
+                delta.apply(e.getValue(), 1);
+                if (current != null) {
+                    delta.apply(current, -1);
+                }
+                fixed++;
+            }
+        }
+        // Nhóm chỉ có trong project_stats: trừ về 0 rồi xóa
+        for (Bucket stale : summary.values()) {
+            delta.apply(stale, -1);
+            fixed++;
+        }
+        if (fixed == 0) {
+            return 0;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement()) {
+                delta.flush(connection);
+                stmt.executeUpdate(DELETE_EMPTY_SQL);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        return fixed;
+    }
+
+    private static Map<String, Bucket> readBuckets(Statement stmt, String sql) throws SQLException {
+        Map<String, Bucket> buckets = new HashMap<>();
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                Bucket b = new Bucket(rs.getInt("teacher_id"), rs.getString("status"), rs.getString("grade"));
+                b.count = rs.getLong("project_count");
+                b.processSum = rs.getDouble("process_sum");
+                b.processCount = rs.getLong("process_count");
+                b.defenseSum = rs.getDouble("defense_sum");
+                b.defenseCount = rs.getLong("defense_count");
+                b.finalSum = rs.getDouble("final_sum");
+                b.finalCount = rs.getLong("final_count");
+                buckets.put(b.key(), b);
+            }
+        }
+        return buckets;
+    }
+
+    // Đọc phần đóng góp hiện tại của một đồ án và khóa dòng đó tới hết transaction; null nếu không tồn tại
+    static Contribution readForUpdate(Connection connection, int projectId) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(CONTRIBUTION_SQL)) {
+            pstmt.setInt(1, projectId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Contribution.from(rs) : null;
+            }
+        }
+    }
+
+    // Phần một đồ án đóng góp vào project_stats
+    static final class Contribution {
+        final int teacherId;
+        final String status;
+        final String grade;
+        final Double processScore;
+        final Double defenseScore;
+        final Double finalScore;
+
+        Contribution(int teacherId, String status, String grade, Double processScore, Double defenseScore,
+                     Double finalScore) {
+            this.teacherId = teacherId;
+            this.status = status != null ? status : "";
+            this.grade = grade != null ? grade : "";
+            this.processScore = processScore;
+            this.defenseScore = defenseScore;
+            this.finalScore = finalScore;
+        }
+
+        // rs phải có các cột teacher_id, status, grade, process_score, defense_score, final_score
+        static Contribution from(ResultSet rs) throws SQLException {
+            return new Contribution(rs.getInt("teacher_id"), rs.getString("status"), rs.getString("grade"),
+                    getNullableDouble(rs, "process_score"), getNullableDouble(rs, "defense_score"),
+                    getNullableDouble(rs, "final_score"));
+        }
+
+        Contribution withStatus(String newStatus) {
+            return new Contribution(teacherId, newStatus, grade, processScore, defenseScore, finalScore);
+        }
+
+        Contribution withScores(Double newProcess, Double newDefense, Double newFinal, String newGrade) {
+            return new Contribution(teacherId, status, newGrade, newProcess, newDefense, newFinal);
+        }
+
+        private static Double getNullableDouble(ResultSet rs, String column) throws SQLException {
+            double value = rs.getDouble(column);
+            return rs.wasNull() ? null : value;
+        }
+    }
+
+    // Gom các thay đổi theo nhóm (teacher_id, status, grade) rồi ghi bằng một lô upsert; nhiều đồ án cùng nhóm
+    // (nhập điểm hàng loạt, tính lại điểm) chỉ tạo một dòng upsert.
+    // TreeMap để mọi transaction khóa các dòng project_stats theo cùng một thứ tự, tránh deadlock
+    static final class Delta {
+        private final Map<String, Bucket> buckets = new TreeMap<>();
+
+        void add(Contribution c) {
+            apply(c, 1);
+        }
+
+        void remove(Contribution c) {
+            apply(c, -1);
+        }
+
+        // Thay phần đóng góp old bằng current (null = không có, ví dụ khi thêm hoặc xóa đồ án)
+        void replace(Contribution old, Contribution current) {
+            if (old != null) {
+                remove(old);
+            }
+            if (current != null) {
+                add(current);
+            }
+        }
+
+        // Cộng (sign = 1) hoặc trừ (sign = -1) cả một nhóm, dùng khi đối soát
+        private void apply(Bucket other, int sign) {
+            Bucket b = buckets.computeIfAbsent(other.key(), k -> new Bucket(other.teacherId, other.status, other.grade));
+            b.count += sign * other.count;
+            b.processSum += sign * other.processSum;
+            b.processCount += sign * other.processCount;
+            b.defenseSum += sign * other.defenseSum;
+            b.defenseCount += sign * other.defenseCount;
+            b.finalSum += sign * other.finalSum;
+            b.finalCount += sign * other.finalCount;
+        }
+
+        private void apply(Contribution c, int sign) {
+            Bucket b = buckets.computeIfAbsent(Bucket.key(c.teacherId, c.status, c.grade),
+                    k -> new Bucket(c.teacherId, c.status, c.grade));
+            b.count += sign;
+            if (c.processScore != null) {
+                b.processSum += sign * c.processScore;
+                b.processCount += sign;
+            }
+            if (c.defenseScore != null) {
+                b.defenseSum += sign * c.defenseScore;
+                b.defenseCount += sign;
+            }
+            if (c.finalScore != null) {
+                b.finalSum += sign * c.finalScore;
+                b.finalCount += sign;
+            }
+        }
+
+        // Ghi trên connection của transaction hiện tại; người gọi commit/rollback
+        void flush(Connection connection) throws SQLException {
+            try (PreparedStatement pstmt = connection.prepareStatement(UPSERT_SQL)) {
+                int pending = 0;
+                for (Bucket b : buckets.values()) {
+                    if (b.isEmpty()) {
+                        continue;
+                    }
+                    pstmt.setInt(1, b.teacherId);
+                    pstmt.setString(2, b.status);
+                    pstmt.setString(3, b.grade);
+                    pstmt.setLong(4, b.count);
+                    pstmt.setDouble(5, b.processSum);
+                    pstmt.setLong(6, b.processCount);
+                    pstmt.setDouble(7, b.defenseSum);
+                    pstmt.setLong(8, b.defenseCount);
+                    pstmt.setDouble(9, b.finalSum);
+                    pstmt.setLong(10, b.finalCount);
+                    pstmt.addBatch();
+                    pending++;
+                }
+                if (pending > 0) {
+                    pstmt.executeBatch();
+                }
+            }
+            buckets.clear();
+        }
+    }
+
+    private static final class Bucket {
+        private final int teacherId;
+        private final String status;
+        private final String grade;
+        private long count;
+        private double processSum;
+        private long processCount;
+        private double defenseSum;
+        private long defenseCount;
+        private double finalSum;
+        private long finalCount;
+
+        Bucket(int teacherId, String status, String grade) {
+            this.teacherId = teacherId;
+            this.status = status;
+            this.grade = grade;
+        }
+
+        String key() {
+            return key(teacherId, status, grade);
+        }
+
+        static String key(int teacherId, String status, String grade) {
+            return teacherId + "\u0000" + status + "\u0000" + grade;
+        }
+
+        // Cùng số đếm và tổng điểm (trong sai số làm tròn)
+        boolean matches(Bucket other) {
+            return count == other.count && processCount == other.processCount
+                    && defenseCount == other.defenseCount && finalCount == other.finalCount
+                    && Math.abs(processSum - other.processSum) < SUM_TOLERANCE
+                    && Math.abs(defenseSum - other.defenseSum) < SUM_TOLERANCE
+                    && Math.abs(finalSum - other.finalSum) < SUM_TOLERANCE;
+        }
+
+        // Đóng góp cũ và mới triệt tiêu nhau (ví dụ sửa tiêu đề đồ án)
+        boolean isEmpty() {
+            return count == 0 && processCount == 0 && defenseCount == 0 && finalCount == 0
+                    && processSum == 0 && defenseSum == 0 && finalSum == 0;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.projectmanagement.dao;
+
+import org.projectmanagement.models.Student;
+import org.projectmanagement.models.Teacher;
+import org.projectmanagement.util.LruCache;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Cache đọc xuyên (read-through) dùng chung cho sinh viên và giảng viên: danh sách đầy đủ cho các combo box
+// và tra cứu theo id. Miss thì đọc từ DB qua StudentDAO/TeacherDAO rồi lưu lại. Sinh viên/giảng viên của người
+// đăng nhập đã có sẵn trong UserSession nên không cần tra ở đây.
+// Cấu hình: -Dcache.reference.maxEntries=5000 (mỗi bảng tra), -Dcache.reference.ttlMs=300000.
+// Các lệnh ghi của StudentDAO/TeacherDAO gọi invalidate(); thay đổi từ máy khác đến qua thông báo
+// "reference_data_changed" của socket server (ProjectSocketClient gọi invalidateFromRemote()).
+// Các đối tượng trả về được dùng chung, người gọi không được sửa chúng.
+public class ReferenceDataCache {
+    public static final String STUDENT = "student";
+    public static final String TEACHER = "teacher";
+
+    private static final int MAX_ENTRIES = Integer.getInteger("cache.reference.maxEntries", 5000);
+    private static final long TTL_MS = Long.getLong("cache.reference.ttlMs", 300_000L);
+
+    private static ReferenceDataCache shared;
+    // Nhận thông báo khi dữ liệu bị sửa trong tiến trình này, để chuyển tiếp cho các client khác qua socket
+    private static final List<Consumer<String>> localChangeListeners = new CopyOnWriteArrayList<>();
+
+    private final StudentDAO studentDAO;
+    private final TeacherDAO teacherDAO;
+    private final LruCache<Integer, Student> studentsById = new LruCache<>(MAX_ENTRIES, TTL_MS);
+    private final LruCache<Integer, Teacher> teachersById = new LruCache<>(MAX_ENTRIES, TTL_MS);
+    // Danh sách đầy đủ; chỉ giữ khi không vượt quá MAX_ENTRIES phần tử
+    private final LruCache<String, List<Student>> allStudents = new LruCache<>(1, TTL_MS);
+    private final LruCache<String, List<Teacher>> allTeachers = new LruCache<>(1, TTL_MS);
+
+    private ReferenceDataCache(DataSource dataSource) {
+        this.studentDAO = new StudentDAO(dataSource);
+        this.teacherDAO = new TeacherDAO(dataSource);
+    }
+
+    // Cache dùng chung của tiến trình; ứng dụng chỉ có một DataSource (DBConnection.getDataSource())
+    public static synchronized ReferenceDataCache shared(DataSource dataSource) {
+        if (shared == null) {
+            shared = new ReferenceDataCache(dataSource);
+        }
+        return shared;
+    }
+
+    public List<Student> getStudents() throws SQLException {
+        List<Student> students = allStudents.get(STUDENT);
+        if (students != null) {
+            return students;
+        }
+        // Lấy generation trước khi đọc DB: invalidate() chạy trong lúc findAll() thì kết quả cũ bị bỏ
+        long generation = allStudents.generation();
+        long byIdGeneration = studentsById.generation();
+        students = Collections.unmodifiableList(studentDAO.findAll());
+        if (students.size() <= MAX_ENTRIES) {
+            allStudents.putIfGeneration(STUDENT, students, generation);
+        }
+        for (Student s : students) {
+            studentsById.putIfGeneration(s.getStudentId(), s, byIdGeneration);
+        }
+        return students;
+    }
+
+    public Student getStudent(int studentId) throws SQLException {
+        Student student = studentsById.get(studentId);
+        if (student == null) {
+            long generation = studentsById.generation();
+            student = studentDAO.findById(studentId);
+            if (student != null) {
+                studentsById.putIfGeneration(studentId, student, generation);
+            }
+        }
+        return student;
+    }
+
+    public List<Teacher> getTeachers() throws SQLException {
+        List<Teacher> teachers = allTeachers.get(TEACHER);
+        if (teachers != null) {
+            return teachers;
+        }
+        // Lấy generation trước khi đọc DB: invalidate() chạy trong lúc findAll() thì kết quả cũ bị bỏ
+        long generation = allTeachers.generation();
+        long byIdGeneration = teachersById.generation();
+        teachers = Collections.unmodifiableList(teacherDAO.findAll());
+        if (teachers.size() <= MAX_ENTRIES) {
+            allTeachers.putIfGeneration(TEACHER, teachers, generation);
+        }
+        for (Teacher t : teachers) {
+            teachersById.putIfGeneration(t.getTeacherId(), t, byIdGeneration);
+        }
+        return teachers;
+    }
+
+    public Teacher getTeacher(int teacherId) throws SQLException {
+        Teacher teacher = teachersById.get(teacherId);
+        if (teacher == null) {
+            long generation = teachersById.generation();
+            teacher = teacherDAO.findById(teacherId);
+            if (teacher != null) {
+                teachersById.putIfGeneration(teacherId, teacher, generation);
+            }
+        }
+        return teacher;
+    }
+
+    // Gọi từ các lệnh ghi của DAO: xóa cache của bảng tương ứng và báo cho các listener (chuyển tiếp qua socket)
+    static void invalidate(String entity) {
+        invalidateFromRemote(entity);
+        for (Consumer<String> listener : localChangeListeners) {
+            listener.accept(entity);
+        }
+    }
+
+    // Thông báo thay đổi từ client khác: chỉ xóa cache, không chuyển tiếp lại
+    public static void invalidateFromRemote(String entity) {
+        ReferenceDataCache cache;
+        synchronized (ReferenceDataCache.class) {
+            cache = shared;
+        }
+        if (cache == null) {
+            return;
+        }
+        if (STUDENT.equals(entity)) {
+            cache.studentsById.clear();
+            cache.allStudents.clear();
+        } else if (TEACHER.equals(entity)) {
+            cache.teachersById.clear();
+            cache.allTeachers.clear();
+        }
+    }
+
+    public static void addLocalChangeListener(Consumer<String> listener) {
+        localChangeListeners.add(listener);
+    }
+
+    public static void removeLocalChangeListener(Consumer<String> listener) {
+        localChangeListeners.remove(listener);
+    }
+}
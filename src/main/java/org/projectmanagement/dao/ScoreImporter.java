@@ -0,0 +1,292 @@
+package org.projectmanagement.dao;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Nhập điểm hàng loạt từ CSV: mỗi dòng "projectId,điểm quá trình,điểm bảo vệ" (ô điểm để trống = chưa có điểm).
+// Đọc và kiểm tra từng dòng trong một lượt, tính điểm tổng kết/xếp loại ngay khi đọc, kiểm tra quyền chấm theo lô
+// IN (...), rồi ghi tất cả bằng UPDATE theo lô trong một transaction (kèm cập nhật project_stats).
+// Dòng lỗi được bỏ qua và báo lại theo số dòng.
+public class ScoreImporter {
+    private static final int BATCH_SIZE = 500;
+    private static final String UPDATE_SQL = "UPDATE projects " +
+            "SET process_score = ?, defense_score = ?, final_score = ?, grade = ? WHERE project_id = ?";
+
+    private final DataSource dataSource;
+    private final ProjectStatsStore statsStore;
+    private final GradingPolicy policy = GradingPolicy.current();
+
+    public ScoreImporter(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.statsStore = new ProjectStatsStore(dataSource);
+    }
+
+    // teacherIdScope: null cho admin (mọi đồ án); có giá trị thì chỉ nhận đồ án do giảng viên đó phụ trách
+    public ImportResult importCsv(Reader source, Integer teacherIdScope) throws IOException, SQLException {
+        List<RowError> errors = new ArrayList<>();
+        // projectId -> dòng điểm, giữ thứ tự trong file
+        Map<Integer, ScoreRow> rows = new LinkedHashMap<>();
+        int totalRows = 0;
+
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        boolean firstDataLine = true;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            // Excel lưu "CSV UTF-8" kèm BOM ở đầu tệp; không bỏ thì ô projectId của dòng đầu không còn là số
+            if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            // File CSV do Excel xuất với locale Việt Nam dùng ';' phân cách và ',' thập phân
+            boolean semicolon = line.indexOf(';') >= 0;
+            String[] cells = line.split(semicolon ? ";" : ",", -1);
+            if (firstDataLine) {
+                firstDataLine = false;
+                if (isHeader(cells, semicolon)) {
+                    continue;
+                }
+            }
+            totalRows++;
+            try {
+                ScoreRow row = parseRow(lineNumber, cells, semicolon);
+                if (rows.containsKey(row.projectId)) {
+                    errors.add(new RowError(lineNumber, "Đồ án " + row.projectId + " đã có ở dòng "
+                            + rows.get(row.projectId).lineNumber));
+                } else {
+                    rows.put(row.projectId, row);
+                }
+            } catch (IllegalArgumentException e) {
+                errors.add(new RowError(lineNumber, e.getMessage()));
+            }
+        }
+
+        if (rows.isEmpty()) {
+            return new ImportResult(totalRows, 0, errors);
+        }
+
+        statsStore.ensureTable();
+        try (Connection connection = dataSource.getConnection()) {
+            // Tất cả hoặc không: lỗi giữa chừng thì rollback để không có đồ án nào bị ghi dở
+            connection.setAutoCommit(false);
+            try {
+                Map<Integer, ProjectStatsStore.Contribution> gradable =
+                        lockGradable(connection, new ArrayList<>(rows.keySet()), teacherIdScope);
+                List<ScoreRow> toUpdate = new ArrayList<>();
+                for (ScoreRow row : rows.values()) {
+                    if (gradable.containsKey(row.projectId)) {
+                        toUpdate.add(row);
+                    } else {
+                        errors.add(new RowError(row.lineNumber, teacherIdScope != null
+                                ? "Không tìm thấy đồ án " + row.projectId + " hoặc bạn không phụ trách đồ án này"
+                                : "Không tìm thấy đồ án " + row.projectId));
+                    }
+                }
+                writeScores(connection, toUpdate, gradable);
+                connection.commit();
+                errors.sort((a, b) -> Integer.compare(a.lineNumber, b.lineNumber));
+                return new ImportResult(totalRows, toUpdate.size(), errors);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Dòng tiêu đề: không ô nào (projectId và các ô điểm) là số. Dòng đầu có số ở ô điểm mà projectId sai
+    // vẫn là dòng dữ liệu và được báo lỗi như các dòng khác
+    private static boolean isHeader(String[] cells, boolean decimalComma) {
+        for (int i = 0; i < Math.min(cells.length, 3); i++) {
+            String value = cells[i].trim();
+            if (decimalComma) {
+                value = value.replace(',', '.');
+            }
+            try {
+                Double.parseDouble(value);
+                return false;
+            } catch (NumberFormatException e) {
+                // Ô chữ hoặc trống, xét ô tiếp theo
+            }
+        }
+        return true;
+    }
+
+    private ScoreRow parseRow(int lineNumber, String[] cells, boolean decimalComma) {
+        if (cells.length < 3) {
+            throw new IllegalArgumentException("Cần 3 cột: projectId, điểm quá trình, điểm bảo vệ");
+        }
+        int projectId;
+        try {
+            projectId = Integer.parseInt(cells[0].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("ID đồ án không hợp lệ: " + cells[0].trim());
+        }
+        if (projectId <= 0) {
+            throw new IllegalArgumentException("ID đồ án không hợp lệ: " + projectId);
+        }
+        Double processScore = parseScore(cells[1], decimalComma, "quá trình");
+        Double defenseScore = parseScore(cells[2], decimalComma, "bảo vệ");
+        Double finalScore = policy.finalScore(processScore, defenseScore);
+        return new ScoreRow(lineNumber, projectId, processScore, defenseScore, finalScore, policy.grade(finalScore));
+    }
+
+    private Double parseScore(String cell, boolean decimalComma, String label) {
+        String value = cell.trim();
+        if (value.isEmpty()) {
+            return null;
+        }
+        if (decimalComma) {
+            value = value.replace(',', '.');
+        }
+        double score;
+        try {
+            score = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Điểm " + label + " không hợp lệ: " + cell.trim());
+        }
+        if (score < 0 || score > 10) {
+            throw new IllegalArgumentException("Điểm " + label + " phải nằm trong khoảng từ 0 đến 10: " + cell.trim());
+        }
+        return score;
+    }
+
+    // Các đồ án có tồn tại (và thuộc giảng viên nếu có teacherIdScope) cùng phần đóng góp hiện tại vào
+    // project_stats, khóa FOR UPDATE tới hết transaction; một truy vấn cho mỗi lô BATCH_SIZE id
+    private Map<Integer, ProjectStatsStore.Contribution> lockGradable(Connection connection, List<Integer> ids,
+                                                                      Integer teacherIdScope) throws SQLException {
+        Map<Integer, ProjectStatsStore.Contribution> found = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            String sql = "SELECT project_id, teacher_id, status, grade, process_score, defense_score, final_score " +
+                    "FROM projects WHERE project_id IN (" +
+                    String.join(",", Collections.nCopies(chunk.size(), "?")) + ")" +
+                    (teacherIdScope != null ? " AND teacher_id = ?" : "") + " FOR UPDATE";
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setInt(i + 1, chunk.get(i));
+                }
+                if (teacherIdScope != null) {
+                    pstmt.setInt(chunk.size() + 1, teacherIdScope);
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        found.put(rs.getInt("project_id"), ProjectStatsStore.Contribution.from(rs));
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    // Ghi điểm theo lô trên transaction của importCsv; người gọi commit/rollback
+    private void writeScores(Connection connection, List<ScoreRow> rows,
+                             Map<Integer, ProjectStatsStore.Contribution> current) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        ProjectStatsStore.Delta delta = new ProjectStatsStore.Delta();
+        try (PreparedStatement pstmt = connection.prepareStatement(UPDATE_SQL)) {
+            int pending = 0;
+            for (ScoreRow row : rows) {
+                ProjectStatsStore.Contribution old = current.get(row.projectId);
+                delta.replace(old, old.withScores(row.processScore, row.defenseScore, row.finalScore, row.grade));
+                setNullableDouble(pstmt, 1, row.processScore);
+                setNullableDouble(pstmt, 2, row.defenseScore);
+                setNullableDouble(pstmt, 3, row.finalScore);
+                if (row.grade != null) {
+                    pstmt.setString(4, row.grade);
+                } else {
+                    pstmt.setNull(4, Types.VARCHAR);
+                }
+                pstmt.setInt(5, row.projectId);
+                pstmt.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    pstmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                pstmt.executeBatch();
+            }
+        }
+        delta.flush(connection);
+    }
+
+    private static void setNullableDouble(PreparedStatement pstmt, int index, Double value) throws SQLException {
+        if (value != null) {
+            pstmt.setDouble(index, value);
+        } else {
+            pstmt.setNull(index, Types.DOUBLE);
+        }
+    }
+
+    private static final class ScoreRow {
+        private final int lineNumber;
+        private final int projectId;
+        private final Double processScore;
+        private final Double defenseScore;
+        private final Double finalScore;
+        private final String grade;
+
+        ScoreRow(int lineNumber, int projectId, Double processScore, Double defenseScore, Double finalScore, String grade) {
+            this.lineNumber = lineNumber;
+            this.projectId = projectId;
+            this.processScore = processScore;
+            this.defenseScore = defenseScore;
+            this.finalScore = finalScore;
+            this.grade = grade;
+        }
+    }
+
+    public static class RowError {
+        private final int lineNumber;
+        private final String message;
+
+        public RowError(int lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        public int getLineNumber() { return lineNumber; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "Dòng " + lineNumber + ": " + message;
+        }
+    }
+
+    public static class ImportResult {
+        private final int totalRows;
+        private final int updatedRows;
+        private final List<RowError> errors;
+
+        public ImportResult(int totalRows, int updatedRows, List<RowError> errors) {
+            this.totalRows = totalRows;
+            this.updatedRows = updatedRows;
+            this.errors = errors;
+        }
+
+        public int getTotalRows() { return totalRows; }
+        public int getUpdatedRows() { return updatedRows; }
+        public List<RowError> getErrors() { return errors; }
+    }
+}
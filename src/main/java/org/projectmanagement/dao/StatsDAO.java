@@ -0,0 +1,141 @@
+package org.projectmanagement.dao;
+
+import org.projectmanagement.models.ProjectStats;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Thống kê đồ án tính ngay trong MySQL, thay vì tải toàn bộ dự án kèm file/bình luận rồi đếm phía client.
+// Thống kê toàn bộ và theo giảng viên đọc từ bảng tổng hợp project_stats (xem ProjectStatsStore), chi phí không
+// phụ thuộc số đồ án. Phạm vi sinh viên và tìm kiếm theo keyword (tiêu đề hoặc ID sinh viên, như ProjectDAO)
+// không có sẵn trong bảng tổng hợp nên dùng một truy vấn GROUP BY (status, grade) trên projects.
+public class StatsDAO {
+    private static final String STATS_SELECT =
+            "SELECT p.status, p.grade, COUNT(*) AS total, " +
+            "SUM(p.process_score) AS process_sum, COUNT(p.process_score) AS process_count, " +
+            "SUM(p.defense_score) AS defense_sum, COUNT(p.defense_score) AS defense_count, " +
+            "SUM(p.final_score) AS final_sum, COUNT(p.final_score) AS final_count " +
+            "FROM projects p ";
+    private static final String STUDENT_JOIN = "LEFT JOIN students s ON p.student_id = s.student_id ";
+    private static final String SUMMARY_SELECT =
+            "SELECT ps.status, ps.grade, SUM(ps.project_count) AS total, " +
+            "SUM(ps.process_sum) AS process_sum, SUM(ps.process_count) AS process_count, " +
+            "SUM(ps.defense_sum) AS defense_sum, SUM(ps.defense_count) AS defense_count, " +
+            "SUM(ps.final_sum) AS final_sum, SUM(ps.final_count) AS final_count " +
+            "FROM project_stats ps ";
+
+    private final DataSource dataSource;
+    private final ProjectStatsStore statsStore;
+
+    public StatsDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.statsStore = new ProjectStatsStore(dataSource);
+    }
+
+    // Toàn bộ đồ án (admin)
+    public ProjectStats getStats(String keyword) throws SQLException {
+        if (keyword == null) {
+            return querySummary(SUMMARY_SELECT + "GROUP BY ps.status, ps.grade");
+        }
+        return queryStats(null, null, keyword);
+    }
+
+    // Đồ án của một sinh viên (student_id lấy từ phiên đăng nhập)
+    public ProjectStats getStatsForStudent(int studentId, String keyword) throws SQLException {
+        return queryStats("p.student_id = ?", studentId, keyword);
+    }
+
+    // Đồ án do một giảng viên phụ trách
+    public ProjectStats getStatsForTeacher(int teacherId, String keyword) throws SQLException {
+        if (keyword == null) {
+            return querySummary(SUMMARY_SELECT + "WHERE ps.teacher_id = ? GROUP BY ps.status, ps.grade", teacherId);
+        }
+        return queryStats("p.teacher_id = ?", teacherId, keyword);
+    }
+
+    // Dựng lại project_stats từ projects; dùng cho job đối soát định kỳ
+    public void reconcileSummary() throws SQLException {
+        statsStore.reconcile();
+    }
+
+    private ProjectStats querySummary(String sql, Object... params) throws SQLException {
+        statsStore.ensureTable();
+        return aggregate(sql, params);
+    }
+
+    private ProjectStats queryStats(String scopeCondition, Object scopeValue, String keyword) throws SQLException {
+        StringBuilder sql = new StringBuilder(STATS_SELECT);
+        List<Object> params = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        // Phạm vi lọc trực tiếp trên projects; chỉ tìm kiếm theo ID sinh viên mới cần join students
+        if (keyword != null) {
+            sql.append(STUDENT_JOIN);
+        }
+        if (scopeCondition != null) {
+            conditions.add(scopeCondition);
+            params.add(scopeValue);
+        }
+        if (keyword != null) {
+            conditions.add("(p.title LIKE ? OR CAST(s.student_id AS CHAR) LIKE ?)");
+            params.add("%" + keyword + "%");
+            params.add("%" + keyword + "%");
+        }
+        if (!conditions.isEmpty()) {
+            sql.append("WHERE ").append(String.join(" AND ", conditions)).append(' ');
+        }
+        sql.append("GROUP BY p.status, p.grade");
+        return aggregate(sql.toString(), params.toArray());
+    }
+
+    // Cộng dồn các nhóm (status, grade) thành một ProjectStats; nhóm status/grade rỗng không được đếm riêng
+    private ProjectStats aggregate(String sql, Object... params) throws SQLException {
+        long total = 0;
+        Map<String, Long> statusCounts = new HashMap<>();
+        Map<String, Long> gradeCounts = new HashMap<>();
+        double processSum = 0, defenseSum = 0, finalSum = 0;
+        long processCount = 0, defenseCount = 0, finalCount = 0;
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long count = rs.getLong("total");
+                    if (count == 0) {
+                        continue;
+                    }
+                    total += count;
+                    String status = rs.getString("status");
+                    if (status != null && !status.isEmpty()) {
+                        statusCounts.merge(status, count, Long::sum);
+                    }
+                    String grade = rs.getString("grade");
+                    if (grade != null && !grade.isEmpty()) {
+                        gradeCounts.merge(grade, count, Long::sum);
+                    }
+                    // SUM của nhóm toàn NULL trả về NULL, getDouble đọc thành 0 nên cộng dồn không bị ảnh hưởng
+                    processSum += rs.getDouble("process_sum");
+                    processCount += rs.getLong("process_count");
+                    defenseSum += rs.getDouble("defense_sum");
+                    defenseCount += rs.getLong("defense_count");
+                    finalSum += rs.getDouble("final_sum");
+                    finalCount += rs.getLong("final_count");
+                }
+            }
+        }
+
+        return new ProjectStats(total, statusCounts, gradeCounts,
+                processCount > 0 ? processSum / processCount : null,
+                defenseCount > 0 ? defenseSum / defenseCount : null,
+                finalCount > 0 ? finalSum / finalCount : null);
+    }
+}
@@ -3,20 +3,23 @@ package org.projectmanagement.dao;
 import org.projectmanagement.models.Student;
 import org.projectmanagement.models.User;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class StudentDAO {
-    private final Connection connection;
+    private final DataSource dataSource;
 
-    public StudentDAO(Connection connection) {
-        this.connection = connection;
+    public StudentDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 // Phương thức thêm sinh viên
     public void addStudent(Student student, int userId) throws SQLException {
         String sql = "INSERT INTO students (full_name, email, phone_number, major, class_code, user_id) VALUES (?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, student.getFullName());
             pstmt.setString(2, student.getEmail());
             pstmt.setString(3, student.getPhoneNumber());
@@ -32,11 +35,13 @@ public class StudentDAO {
                 }
             }
         }
+        ReferenceDataCache.invalidate(ReferenceDataCache.STUDENT);
     }
 // Phương thức cập nhật thông tin sinh viên
     public void updateStudent(Student student) throws SQLException {
         String sql = "UPDATE students SET full_name = ?, email = ?, phone_number = ?, major = ?, class_code = ?, user_id = ? WHERE student_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, student.getFullName());
             pstmt.setString(2, student.getEmail());
             pstmt.setString(3, student.getPhoneNumber());
@@ -46,31 +51,41 @@ public class StudentDAO {
             pstmt.setInt(7, student.getStudentId());
             pstmt.executeUpdate();
         }
+        ReferenceDataCache.invalidate(ReferenceDataCache.STUDENT);
     }
 // Phương thức xóa sinh viên
     public void deleteStudent(int id) throws SQLException {
         String sql = "DELETE FROM students WHERE student_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             pstmt.executeUpdate();
         }
+        ReferenceDataCache.invalidate(ReferenceDataCache.STUDENT);
     }
 // Phương thức tìm kiếm sinh viên theo ID
     public Student findById(int id) throws SQLException {
         String sql = "SELECT * FROM students WHERE student_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return new Student(
-                            rs.getInt("student_id"),
-                            rs.getString("full_name"),
-                            rs.getString("email"),
-                            rs.getString("phone_number"),
-                            rs.getString("major"),
-                            rs.getString("class_code"),
-                            rs.getInt("user_id")
-                    );
+                    return mapStudent(rs);
+                }
+            }
+        }
+        return null;
+    }
+// Sinh viên gắn với tài khoản users.user_id; null nếu không có
+    public Student findByUserId(int userId) throws SQLException {
+        String sql = "SELECT * FROM students WHERE user_id = ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapStudent(rs);
                 }
             }
         }
@@ -80,18 +95,11 @@ public class StudentDAO {
     public List<Student> findAll() throws SQLException {
         List<Student> students = new ArrayList<>();
         String sql = "SELECT * FROM students";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                students.add(new Student(
-                        rs.getInt("student_id"),
-                        rs.getString("full_name"),
-                        rs.getString("email"),
-                        rs.getString("phone_number"),
-                        rs.getString("major"),
-                        rs.getString("class_code"),
-                        rs.getInt("user_id")
-                ));
+                students.add(mapStudent(rs));
             }
         }
         return students;
@@ -101,23 +109,59 @@ public class StudentDAO {
     public List<Student> searchByNameOrEmail(String keyword) throws SQLException {
         List<Student> students = new ArrayList<>();
         String sql = "SELECT * FROM students WHERE full_name LIKE ? OR email LIKE ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, "%" + keyword + "%");
             pstmt.setString(2, "%" + keyword + "%");
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    students.add(new Student(
-                            rs.getInt("student_id"),
-                            rs.getString("full_name"),
-                            rs.getString("email"),
-                            rs.getString("phone_number"),
-                            rs.getString("major"),
-                            rs.getString("class_code"),
-                            rs.getInt("user_id")
-                    ));
+                    students.add(mapStudent(rs));
+                }
+            }
+        }
+        return students;
+    }
+
+    // Trang kế tiếp theo keyset: các sinh viên có student_id > afterStudentId (trang đầu truyền 0)
+    public List<Student> findPageAfter(int afterStudentId, int pageSize) throws SQLException {
+        List<Student> students = new ArrayList<>();
+        String sql = "SELECT * FROM students WHERE student_id > ? ORDER BY student_id LIMIT ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, afterStudentId);
+            pstmt.setInt(2, pageSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    students.add(mapStudent(rs));
                 }
             }
         }
         return students;
     }
-}
\ No newline at end of file
+    // Đọc tuần tự toàn bộ sinh viên bằng ResultSet forward-only đọc dần từ server, không giữ cả bảng trong bộ nhớ
+    public void streamAll(Consumer<Student> action) throws SQLException {
+        String sql = "SELECT * FROM students ORDER BY student_id";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Chế độ streaming của Connector/J, như ProjectDAO.streamAll
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapStudent(rs));
+                }
+            }
+        }
+    }
+
+    private Student mapStudent(ResultSet rs) throws SQLException {
+        return new Student(
+                rs.getInt("student_id"),
+                rs.getString("full_name"),
+                rs.getString("email"),
+                rs.getString("phone_number"),
+                rs.getString("major"),
+                rs.getString("class_code"),
+                rs.getInt("user_id")
+        );
+    }
+}
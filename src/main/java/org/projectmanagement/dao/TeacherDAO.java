@@ -1,83 +1,189 @@
 package org.projectmanagement.dao;
 
 import org.projectmanagement.models.Teacher;
-import org.mindrot.jbcrypt.BCrypt;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class TeacherDAO {
-    private final Connection connection;
+    private static final String DEFAULT_PASSWORD = "pass123";
+    // Số dòng tối đa trong một lô INSERT và trong một truy vấn IN (...)/LIKE
+    private static final int BATCH_SIZE = 500;
 
-    public TeacherDAO(Connection connection) {
-        this.connection = connection;
+    private final DataSource dataSource;
+
+    public TeacherDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
-// Thêm giáo viên vào cơ sở dữ liệu
+// Thêm giáo viên vào cơ sở dữ liệu (kèm tài khoản đăng nhập mật khẩu mặc định)
     public void addTeacher(Teacher teacher) throws SQLException {
-        // Kiểm tra email trùng lặp trong bảng users
-        UserDAO userDAO = new UserDAO(connection);
-        if (userDAO.findByEmail(teacher.getEmail()) != null) {
-            throw new SQLException("Email đã tồn tại: " + teacher.getEmail());
+        addTeachers(Collections.singletonList(teacher));
+    }
+// Thêm nhiều giáo viên cùng tài khoản đăng nhập trong một transaction (tất cả hoặc không):
+// - email trùng (trong danh sách hoặc đã có ở bảng users) được kiểm tra bằng một truy vấn IN (...) mỗi lô
+// - username còn trống được chọn trong bộ nhớ từ một truy vấn LIKE 'tiền tố%' mỗi lô, thay vì thử từng tên
+// - mật khẩu mặc định chỉ được băm (song song) sau khi email đã hợp lệ, chạy cùng lúc với việc chọn username;
+//   lỗi giữa chừng thì các lượt băm chưa chạy bị bỏ qua
+// - dòng teachers và users được ghi bằng INSERT theo lô
+    public int addTeachers(List<Teacher> teachers) throws SQLException {
+        if (teachers.isEmpty()) {
+            return 0;
+        }
+        // So sánh không phân biệt hoa thường như collation của MySQL
+        Set<String> emails = new HashSet<>();
+        for (Teacher teacher : teachers) {
+            if (!emails.add(teacher.getEmail().toLowerCase(Locale.ROOT))) {
+                throw new SQLException("Email trùng trong danh sách: " + teacher.getEmail());
+            }
         }
 
-        // Thêm giáo viên vào bảng teachers và lấy teacher_id
-        String sqlTeacher = "INSERT INTO teachers (full_name, email, phone_number, position) VALUES (?, ?, ?, ?)";
-        int teacherId;
-        try (PreparedStatement pstmt = connection.prepareStatement(sqlTeacher, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, teacher.getFullName());
-            pstmt.setString(2, teacher.getEmail());
-            pstmt.setString(3, teacher.getPhoneNumber());
-            pstmt.setString(4, teacher.getPosition());
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new SQLException("Thêm giáo viên thất bại.");
+        AtomicBoolean cancelled = new AtomicBoolean();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                List<String> existing = findExistingUserEmails(connection, new ArrayList<>(emails));
+                if (!existing.isEmpty()) {
+                    throw new SQLException("Email đã tồn tại: " + String.join(", ", existing));
+                }
+                // Mỗi tài khoản một salt riêng nên phải băm riêng từng cái; BCrypt tốn CPU nên chia cho các core
+                CompletableFuture<List<String>> passwordHashes = CompletableFuture.supplyAsync(() ->
+                        IntStream.range(0, teachers.size()).parallel()
+                                .mapToObj(i -> cancelled.get() ? null : AuthService.hashPassword(DEFAULT_PASSWORD))
+                                .collect(Collectors.toList()));
+                List<String> usernames = allocateUsernames(connection, teachers);
+                List<String> hashes = awaitHashes(passwordHashes);
+
+                String sqlTeacher = "INSERT INTO teachers (full_name, email, phone_number, position) VALUES (?, ?, ?, ?)";
+                String sqlUser = "INSERT INTO users (username, password, email, full_name, role, avatar_path, phone_number) VALUES (?, ?, ?, ?, ?, ?, ?)";
+                try (PreparedStatement teacherStmt = connection.prepareStatement(sqlTeacher);
+                     PreparedStatement userStmt = connection.prepareStatement(sqlUser)) {
+                    for (int i = 0; i < teachers.size(); i++) {
+                        Teacher teacher = teachers.get(i);
+                        teacherStmt.setString(1, teacher.getFullName());
+                        teacherStmt.setString(2, teacher.getEmail());
+                        teacherStmt.setString(3, teacher.getPhoneNumber());
+                        teacherStmt.setString(4, teacher.getPosition());
+                        teacherStmt.addBatch();
+
+                        userStmt.setString(1, usernames.get(i));
+                        userStmt.setString(2, hashes.get(i));
+                        userStmt.setString(3, teacher.getEmail());
+                        userStmt.setString(4, teacher.getFullName());
+                        userStmt.setString(5, "teacher");
+                        userStmt.setString(6, "images/default.png");
+                        userStmt.setString(7, teacher.getPhoneNumber());
+                        userStmt.addBatch();
+
+                        if ((i + 1) % BATCH_SIZE == 0 || i == teachers.size() - 1) {
+                            teacherStmt.executeBatch();
+                            userStmt.executeBatch();
+                        }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                cancelled.set(true);
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
+        }
+        ReferenceDataCache.invalidate(ReferenceDataCache.TEACHER);
+        return teachers.size();
+    }
+
+    private List<String> findExistingUserEmails(Connection connection, List<String> emails) throws SQLException {
+        List<String> existing = new ArrayList<>();
+        for (int from = 0; from < emails.size(); from += BATCH_SIZE) {
+            List<String> chunk = emails.subList(from, Math.min(from + BATCH_SIZE, emails.size()));
+            String sql = "SELECT email FROM users WHERE email IN ("
+                    + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        existing.add(rs.getString("email"));
+                    }
+                }
+            }
+        }
+        return existing;
+    }
 
-            // Lấy teacher_id vừa tạo
-            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    teacherId = generatedKeys.getInt(1);
-                } else {
-                    throw new SQLException("Không lấy được teacher_id.");
+    // Username cho từng giáo viên theo thứ tự danh sách: phần trước @ của email, trùng thì thêm hậu tố 1, 2, ...
+    // (teacher01, teacher011, ...). Các username đã dùng có cùng tiền tố được đọc một lần cho mỗi lô; so sánh không
+    // phân biệt hoa thường như collation của MySQL
+    private List<String> allocateUsernames(Connection connection, List<Teacher> teachers) throws SQLException {
+        List<String> bases = new ArrayList<>(teachers.size());
+        for (Teacher teacher : teachers) {
+            // Tạo username từ email, ví dụ: teacher01@vku.edu.vn -> teacher01
+            bases.add(teacher.getEmail().split("@")[0]);
+        }
+        List<String> prefixes = new ArrayList<>(new LinkedHashSet<>(bases));
+        Set<String> taken = new HashSet<>();
+        for (int from = 0; from < prefixes.size(); from += BATCH_SIZE) {
+            List<String> chunk = prefixes.subList(from, Math.min(from + BATCH_SIZE, prefixes.size()));
+            String sql = "SELECT username FROM users WHERE "
+                    + String.join(" OR ", Collections.nCopies(chunk.size(), "username LIKE ?"));
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, escapeLike(chunk.get(i)) + "%");
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        taken.add(rs.getString("username").toLowerCase(Locale.ROOT));
+                    }
                 }
             }
         }
 
-        // Tạo tài khoản người dùng trong bảng users
-        String username = generateUsername(teacher.getEmail(), userDAO);
-        String hashedPassword = BCrypt.hashpw("pass123", BCrypt.gensalt());
-        String sqlUser = "INSERT INTO users (username, password, email, full_name, role, avatar_path, phone_number) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sqlUser)) {
-            pstmt.setString(1, username);
-            pstmt.setString(2, hashedPassword);
-            pstmt.setString(3, teacher.getEmail());
-            pstmt.setString(4, teacher.getFullName());
-            pstmt.setString(5, "teacher");
-            pstmt.setString(6, "images/default.png");
-            pstmt.setString(7, teacher.getPhoneNumber());
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new SQLException("Tạo tài khoản người dùng thất bại.");
+        List<String> usernames = new ArrayList<>(bases.size());
+        for (String base : bases) {
+            String username = base;
+            int suffix = 1;
+            while (taken.contains(username.toLowerCase(Locale.ROOT))) {
+                username = base + suffix;
+                suffix++;
             }
+            taken.add(username.toLowerCase(Locale.ROOT));
+            usernames.add(username);
         }
+        return usernames;
+    }
+
+    // Email hay có '_' (ký tự đại diện của LIKE), phải thoát để LIKE chỉ khớp đúng tiền tố
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
-// Phương thức tạo username từ email
-    private String generateUsername(String email, UserDAO userDAO) throws SQLException {
-        // Tạo username từ email, ví dụ: teacher01@vku.edu.vn -> teacher01
-        String baseUsername = email.split("@")[0];
-        String username = baseUsername;
-        int suffix = 1;
-        while (userDAO.findByUsername(username) != null) {
-            username = baseUsername + suffix;
-            suffix++;
+
+    private static List<String> awaitHashes(CompletableFuture<List<String>> hashes) throws SQLException {
+        try {
+            return hashes.join();
+        } catch (CompletionException e) {
+            throw new SQLException("Không băm được mật khẩu mặc định: " + e.getCause().getMessage(), e.getCause());
         }
-        return username;
     }
 // Phương thức cập nhật thông tin giáo viên
     public void updateTeacher(Teacher teacher) throws SQLException {
         String sql = "UPDATE teachers SET full_name = ?, email = ?, phone_number = ?, position = ? WHERE teacher_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, teacher.getFullName());
             pstmt.setString(2, teacher.getEmail());
             pstmt.setString(3, teacher.getPhoneNumber());
@@ -85,29 +191,41 @@ public class TeacherDAO {
             pstmt.setInt(5, teacher.getTeacherId());
             pstmt.executeUpdate();
         }
+        ReferenceDataCache.invalidate(ReferenceDataCache.TEACHER);
     }
 
     public void deleteTeacher(int id) throws SQLException {
         String sql = "DELETE FROM teachers WHERE teacher_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             pstmt.executeUpdate();
         }
+        ReferenceDataCache.invalidate(ReferenceDataCache.TEACHER);
     }
 
     public Teacher findById(int id) throws SQLException {
         String sql = "SELECT * FROM teachers WHERE teacher_id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return new Teacher(
-                            rs.getInt("teacher_id"),
-                            rs.getString("full_name"),
-                            rs.getString("email"),
-                            rs.getString("phone_number"),
-                            rs.getString("position")
-                    );
+                    return mapTeacher(rs);
+                }
+            }
+        }
+        return null;
+    }
+    // Giảng viên theo email (trùng email đăng nhập ở bảng users); null nếu không có
+    public Teacher findByEmail(String email) throws SQLException {
+        String sql = "SELECT * FROM teachers WHERE email = ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, email);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapTeacher(rs);
                 }
             }
         }
@@ -117,16 +235,11 @@ public class TeacherDAO {
     public List<Teacher> findAll() throws SQLException {
         List<Teacher> teachers = new ArrayList<>();
         String sql = "SELECT * FROM teachers";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                teachers.add(new Teacher(
-                        rs.getInt("teacher_id"),
-                        rs.getString("full_name"),
-                        rs.getString("email"),
-                        rs.getString("phone_number"),
-                        rs.getString("position")
-                ));
+                teachers.add(mapTeacher(rs));
             }
         }
         return teachers;
@@ -135,21 +248,57 @@ public class TeacherDAO {
     public List<Teacher> searchByNameOrEmail(String keyword) throws SQLException {
         List<Teacher> teachers = new ArrayList<>();
         String sql = "SELECT * FROM teachers WHERE full_name LIKE ? OR email LIKE ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, "%" + keyword + "%");
             pstmt.setString(2, "%" + keyword + "%");
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    teachers.add(new Teacher(
-                            rs.getInt("teacher_id"),
-                            rs.getString("full_name"),
-                            rs.getString("email"),
-                            rs.getString("phone_number"),
-                            rs.getString("position")
-                    ));
+                    teachers.add(mapTeacher(rs));
                 }
             }
         }
         return teachers;
     }
-}
\ No newline at end of file
+
+    // Trang kế tiếp theo keyset: các giảng viên có teacher_id > afterTeacherId (trang đầu truyền 0)
+    public List<Teacher> findPageAfter(int afterTeacherId, int pageSize) throws SQLException {
+        List<Teacher> teachers = new ArrayList<>();
+        String sql = "SELECT * FROM teachers WHERE teacher_id > ? ORDER BY teacher_id LIMIT ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, afterTeacherId);
+            pstmt.setInt(2, pageSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    teachers.add(mapTeacher(rs));
+                }
+            }
+        }
+        return teachers;
+    }
+    // Đọc tuần tự toàn bộ giảng viên bằng ResultSet forward-only đọc dần từ server, không giữ cả bảng trong bộ nhớ
+    public void streamAll(Consumer<Teacher> action) throws SQLException {
+        String sql = "SELECT * FROM teachers ORDER BY teacher_id";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Chế độ streaming của Connector/J, như ProjectDAO.streamAll
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapTeacher(rs));
+                }
+            }
+        }
+    }
+
+    private Teacher mapTeacher(ResultSet rs) throws SQLException {
+        return new Teacher(
+                rs.getInt("teacher_id"),
+                rs.getString("full_name"),
+                rs.getString("email"),
+                rs.getString("phone_number"),
+                rs.getString("position")
+        );
+    }
+}
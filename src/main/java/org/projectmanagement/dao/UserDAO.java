@@ -1,24 +1,27 @@
 package org.projectmanagement.dao;
 
 import org.projectmanagement.models.User;
+import org.projectmanagement.models.UserSession;
 import org.mindrot.jbcrypt.BCrypt;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
 public class UserDAO {
-    private Connection connection;
+    private final DataSource dataSource;
 
-    public UserDAO(Connection connection) {
-        this.connection = connection;
+    public UserDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
     }
 
     // Đăng ký (Sign up)
     public boolean registerUser(User user) throws SQLException {
         String sql = "INSERT INTO users (username, password, email, role, full_name, avatar_path, student_code, phone_number) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, user.getUsername());
             stmt.setString(2, user.getPassword()); // phải là mật khẩu đã được BCrypt hash
             stmt.setString(3, user.getEmail());
@@ -34,7 +37,8 @@ public class UserDAO {
     // Đăng nhập bằng username (giữ nguyên)
     public User login(String username, String password) throws SQLException {
         String sql = "SELECT * FROM users WHERE username = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, username);
             ResultSet rs = stmt.executeQuery();
 
@@ -61,37 +65,62 @@ public class UserDAO {
         return null;
     }
 
-    // Đăng nhập bằng email (mới)
-    public User loginByEmail(String email, String password) throws SQLException {
-        String sql = "SELECT * FROM users WHERE email = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+    // Thông tin đăng nhập theo email: một truy vấn lấy đúng các cột cần cho phiên đăng nhập kèm student_id/lớp
+    // (students.user_id) và teacher_id (teachers.email). Không kiểm tra mật khẩu, việc đó do AuthService làm
+    // trên pool riêng; null nếu không có tài khoản
+    Credentials findCredentialsByEmail(String email) throws SQLException {
+        String sql = "SELECT u.user_id, u.username, u.password, u.email, u.role, u.full_name, u.avatar_path, " +
+                "u.student_code, u.phone_number, s.student_id, s.class_code, t.teacher_id " +
+                "FROM users u " +
+                "LEFT JOIN students s ON s.user_id = u.user_id " +
+                "LEFT JOIN teachers t ON t.email = u.email " +
+                "WHERE u.email = ? LIMIT 1";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, email);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                String hashedPassword = rs.getString("password");
-                if (BCrypt.checkpw(password, hashedPassword)) {
-                    return new User(
-                            rs.getInt("user_id"),
-                            rs.getString("username"),
-                            hashedPassword,
-                            rs.getString("email"),
-                            rs.getString("role"),
-                            rs.getString("full_name"),
-                            rs.getString("avatar_path"),
-                            rs.getString("student_code"),
-                            rs.getString("phone_number")
-                    );
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
                 }
+                String hashedPassword = rs.getString("password");
+                User user = new User(
+                        rs.getInt("user_id"),
+                        rs.getString("username"),
+                        hashedPassword,
+                        rs.getString("email"),
+                        rs.getString("role"),
+                        rs.getString("full_name"),
+                        rs.getString("avatar_path"),
+                        rs.getString("student_code"),
+                        rs.getString("phone_number")
+                );
+                UserSession session = new UserSession(user,
+                        rs.getObject("student_id") != null ? rs.getInt("student_id") : null,
+                        rs.getString("class_code"),
+                        rs.getObject("teacher_id") != null ? rs.getInt("teacher_id") : null);
+                return new Credentials(session, hashedPassword);
             }
         }
-        return null;
+    }
+
+    // Thay mật khẩu đã băm nếu nó vẫn là expectedHash (không ghi đè lần đổi mật khẩu xảy ra song song)
+    boolean replacePasswordHash(int userId, String expectedHash, String newHash) throws SQLException {
+        String sql = "UPDATE users SET password = ? WHERE user_id = ? AND password = ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, newHash);
+            stmt.setInt(2, userId);
+            stmt.setString(3, expectedHash);
+            return stmt.executeUpdate() > 0;
+        }
     }
 
     // Đổi mật khẩu (mới)
     public boolean changePassword(int userId, String oldPassword, String newPassword) throws SQLException {
         // Kiểm tra mật khẩu cũ
         String sql = "SELECT password FROM users WHERE user_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, userId);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
@@ -104,10 +133,11 @@ public class UserDAO {
             }
         }
 
-// Băm mật khẩu mới bằng BCrypt với salt ngẫu nhiên
-        String hashedNewPassword = BCrypt.hashpw(newPassword, BCrypt.gensalt());
+// Băm mật khẩu mới bằng BCrypt với salt ngẫu nhiên (work factor theo cấu hình của AuthService)
+        String hashedNewPassword = AuthService.hashPassword(newPassword);
         sql = "UPDATE users SET password = ? WHERE user_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
 // Cập nhật mật khẩu đã băm vào database
             stmt.setString(1, hashedNewPassword);
             stmt.setInt(2, userId);
@@ -119,7 +149,8 @@ public class UserDAO {
     // Tìm theo ID
     public User findById(int userId) throws SQLException {
         String sql = "SELECT * FROM users WHERE user_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, userId);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
@@ -141,7 +172,8 @@ public class UserDAO {
 
     public User findByEmail(String email) throws SQLException {
         String sql = "SELECT * FROM users WHERE email = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, email);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -163,7 +195,8 @@ public class UserDAO {
     }
     public User findByUsername(String username) throws SQLException {
         String sql = "SELECT * FROM users WHERE username = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, username);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -187,7 +220,8 @@ public class UserDAO {
     // Cập nhật thông tin
     public boolean updateUser(User user) throws SQLException {
         String sql = "UPDATE users SET email = ?, full_name = ?, avatar_path = ?, student_code = ?, phone_number = ? WHERE user_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, user.getEmail());
             stmt.setString(2, user.getFullName());
             stmt.setString(3, user.getAvatarPath());
@@ -201,11 +235,21 @@ public class UserDAO {
     // Xóa người dùng
     public boolean deleteUser(int userId) throws SQLException {
         String sql = "DELETE FROM users WHERE user_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, userId);
             return stmt.executeUpdate() > 0;
         }
     }
 
+    // Phiên đăng nhập chưa xác thực kèm mật khẩu đã băm đọc từ DB
+    static final class Credentials {
+        final UserSession session;
+        final String passwordHash;
 
-}
\ No newline at end of file
+        Credentials(UserSession session, String passwordHash) {
+            this.session = session;
+            this.passwordHash = passwordHash;
+        }
+    }
+}
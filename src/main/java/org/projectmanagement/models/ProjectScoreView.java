@@ -0,0 +1,31 @@
+package org.projectmanagement.models;
+
+// Phần điểm của một đồ án kèm giảng viên phụ trách, đủ cho việc xem và chấm điểm
+public class ProjectScoreView {
+    private final int projectId;
+    private final String title;
+    private final int teacherId;
+    private final Double processScore;
+    private final Double defenseScore;
+    private final Double finalScore;
+    private final String grade;
+
+    public ProjectScoreView(int projectId, String title, int teacherId, Double processScore, Double defenseScore,
+                            Double finalScore, String grade) {
+        this.projectId = projectId;
+        this.title = title;
+        this.teacherId = teacherId;
+        this.processScore = processScore;
+        this.defenseScore = defenseScore;
+        this.finalScore = finalScore;
+        this.grade = grade;
+    }
+
+    public int getProjectId() { return projectId; }
+    public String getTitle() { return title; }
+    public int getTeacherId() { return teacherId; }
+    public Double getProcessScore() { return processScore; }
+    public Double getDefenseScore() { return defenseScore; }
+    public Double getFinalScore() { return finalScore; }
+    public String getGrade() { return grade; }
+}
@@ -0,0 +1,36 @@
+package org.projectmanagement.models;
+
+import java.util.Collections;
+import java.util.Map;
+
+// Số liệu thống kê đồ án đã được tổng hợp sẵn bằng GROUP BY: số lượng theo trạng thái, theo xếp loại
+// và điểm trung bình. Điểm trung bình là null khi chưa có đồ án nào có điểm tương ứng.
+public class ProjectStats {
+    private final long totalProjects;
+    private final Map<String, Long> statusCounts;
+    private final Map<String, Long> gradeCounts;
+    private final Double averageProcessScore;
+    private final Double averageDefenseScore;
+    private final Double averageFinalScore;
+
+    public ProjectStats(long totalProjects, Map<String, Long> statusCounts, Map<String, Long> gradeCounts,
+                        Double averageProcessScore, Double averageDefenseScore, Double averageFinalScore) {
+        this.totalProjects = totalProjects;
+        this.statusCounts = Collections.unmodifiableMap(statusCounts);
+        this.gradeCounts = Collections.unmodifiableMap(gradeCounts);
+        this.averageProcessScore = averageProcessScore;
+        this.averageDefenseScore = averageDefenseScore;
+        this.averageFinalScore = averageFinalScore;
+    }
+
+    public long getTotalProjects() { return totalProjects; }
+    public Map<String, Long> getStatusCounts() { return statusCounts; }
+    public Map<String, Long> getGradeCounts() { return gradeCounts; }
+    public Double getAverageProcessScore() { return averageProcessScore; }
+    public Double getAverageDefenseScore() { return averageDefenseScore; }
+    public Double getAverageFinalScore() { return averageFinalScore; }
+
+    public long getStatusCount(String status) {
+        return statusCounts.getOrDefault(status, 0L);
+    }
+}
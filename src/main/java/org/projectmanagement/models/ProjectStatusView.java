@@ -0,0 +1,24 @@
+package org.projectmanagement.models;
+
+import java.util.Date;
+
+// Phần trạng thái của một đồ án (không kèm file, bình luận hay tên sinh viên/giảng viên),
+// dùng cho các truy vấn chỉ cần biết đồ án đang ở trạng thái nào
+public class ProjectStatusView {
+    private final int projectId;
+    private final String title;
+    private final String status;
+    private final Date ngayNop;
+
+    public ProjectStatusView(int projectId, String title, String status, Date ngayNop) {
+        this.projectId = projectId;
+        this.title = title;
+        this.status = status;
+        this.ngayNop = ngayNop;
+    }
+
+    public int getProjectId() { return projectId; }
+    public String getTitle() { return title; }
+    public String getStatus() { return status; }
+    public Date getNgayNop() { return ngayNop; }
+}
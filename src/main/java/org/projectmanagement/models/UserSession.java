@@ -0,0 +1,47 @@
+package org.projectmanagement.models;
+
+// Phiên đăng nhập: tài khoản kèm student_id/teacher_id và lớp đã tra sẵn lúc đăng nhập (AuthService.loginByEmail),
+// để các panel lọc theo phạm vi người dùng mà không phải tra lại bảng students/teachers mỗi lần tải dữ liệu.
+// studentId/teacherId là null nếu tài khoản chưa gắn với sinh viên/giảng viên nào.
+public class UserSession {
+    private final User user;
+    private final Integer studentId;
+    private final String classCode;
+    private final Integer teacherId;
+
+    public UserSession(User user, Integer studentId, String classCode, Integer teacherId) {
+        this.user = user;
+        this.studentId = studentId;
+        this.classCode = classCode;
+        this.teacherId = teacherId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Integer getStudentId() {
+        return studentId;
+    }
+
+    public String getClassCode() {
+        return classCode;
+    }
+
+    public Integer getTeacherId() {
+        return teacherId;
+    }
+
+    public boolean isAdmin() {
+        return "admin".equals(user.getRole());
+    }
+
+    public boolean isTeacher() {
+        return "teacher".equals(user.getRole());
+    }
+
+    // Vai trò "user" là sinh viên
+    public boolean isStudent() {
+        return "user".equals(user.getRole());
+    }
+}
@@ -0,0 +1,213 @@
+package org.projectmanagement.socket;
+
+import com.google.gson.JsonObject;
+import org.projectmanagement.models.ProjectStatusView;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+
+// Xử lý một kết nối trên cổng truyền file (FileTransferProtocol). Mỗi chunk được ghi thẳng xuống đĩa
+// nên bộ nhớ dùng cho một lần upload chỉ bằng một chunk, không phụ thuộc kích thước file.
+class FileTransferHandler implements Runnable {
+    private final Socket socket;
+    private final ProjectSocketServer server;
+
+    FileTransferHandler(Socket socket, ProjectSocketServer server) {
+        this.socket = socket;
+        this.server = server;
+    }
+
+    @Override
+    public void run() {
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            JsonObject request = FileTransferProtocol.readHeader(in);
+            String action = request.has("action") ? request.get("action").getAsString() : "";
+            switch (action) {
+                case "upload":
+                    handleUpload(request, in, out);
+                    break;
+                case "download":
+                    handleDownload(request, out);
+                    break;
+                default:
+                    FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "Hành động không được hỗ trợ: " + action));
+            }
+        } catch (EOFException e) {
+            System.err.println("Client ngắt kết nối giữa chừng khi truyền file");
+        } catch (SocketTimeoutException e) {
+            System.err.println("Đóng kết nối truyền file: client không gửi dữ liệu quá lâu");
+        } catch (IOException e) {
+            System.err.println("Lỗi kết nối truyền file: " + e.getMessage());
+        }
+    }
+
+    private void handleUpload(JsonObject request, DataInputStream in, DataOutputStream out) throws IOException {
+        if (!request.has("projectId") || !request.has("fileName") || !request.has("fileSize")) {
+            FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "Thiếu projectId, fileName hoặc fileSize"));
+            return;
+        }
+        int projectId = request.get("projectId").getAsInt();
+        String fileName = request.get("fileName").getAsString();
+        long fileSize = request.get("fileSize").getAsLong();
+        int chunkSize = request.has("chunkSize") ? request.get("chunkSize").getAsInt() : FileTransferProtocol.DEFAULT_CHUNK_SIZE;
+
+        if (projectId <= 0) {
+            FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "ID đồ án không hợp lệ: " + projectId));
+            return;
+        }
+        if (chunkSize <= 0 || chunkSize > FileTransferProtocol.MAX_CHUNK_SIZE) {
+            FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "Kích thước chunk không hợp lệ: " + chunkSize));
+            return;
+        }
+        if (fileName.trim().isEmpty() || fileSize < 0) {
+            FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "Tên hoặc kích thước file không hợp lệ"));
+            return;
+        }
+        if (fileSize > ProjectSocketServer.MAX_UPLOAD_BYTES) {
+            FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error",
+                    "File quá lớn, tối đa " + ProjectSocketServer.MAX_UPLOAD_BYTES / (1024 * 1024) + " MB"));
+            return;
+        }
+        try {
+            if (!server.projectExists(projectId)) {
+                FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "Không tìm thấy đồ án với ID: " + projectId));
+                return;
+            }
+        } catch (SQLException e) {
+            FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "Lỗi truy vấn database: " + e.getMessage()));
+            return;
+        }
+
+        String filePath = server.buildUploadPath(projectId, fileName);
+        Path targetPath = Paths.get(filePath);
+        // Ghi vào file tạm, chỉ đổi tên thành file chính thức khi nhận đủ dữ liệu
+        Path partPath = Paths.get(filePath + ".part");
+
+        FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("ready", "Sẵn sàng nhận dữ liệu"));
+
+        byte[] buffer = new byte[chunkSize];
+        long received = 0;
+        boolean completed = false;
+        try {
+            try (OutputStream fileOut = Files.newOutputStream(partPath)) {
+                while (received < fileSize) {
+                    int length = in.readInt();
+                    if (length <= 0 || length > chunkSize || received + length > fileSize) {
+                        throw new IOException("Chunk không hợp lệ, độ dài: " + length);
+                    }
+                    in.readFully(buffer, 0, length);
+                    fileOut.write(buffer, 0, length);
+                    received += length;
+                    out.writeLong(received);
+                    out.flush();
+                }
+            }
+            Files.move(partPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            completed = true;
+        } finally {
+            if (!completed) {
+                Files.deleteIfExists(partPath);
+            }
+        }
+
+        ProjectStatusView project;
+        try {
+            project = server.recordUpload(projectId, filePath);
+        } catch (SQLException e) {
+            Files.deleteIfExists(targetPath);
+            FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "Lỗi cập nhật database: " + e.getMessage()));
+            return;
+        }
+        if (project == null) {
+            FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "Đồ án không tồn tại khi cập nhật database"));
+            return;
+        }
+
+        JsonObject response = FileTransferProtocol.status("success", "Upload file thành công");
+        response.addProperty("filePath", filePath);
+        response.addProperty("fileName", targetPath.getFileName().toString());
+        response.addProperty("fileSize", received);
+        FileTransferProtocol.writeHeader(out, response);
+
+        server.broadcastProjectChange(project, filePath, "Đồ án '" + project.getTitle() + "' đã được nộp", "project_submitted",
+                ProjectChangeEvent.FIELD_NGAY_NOP, ProjectChangeEvent.FIELD_LATEST_FILE);
+        System.out.println("File uploaded (binary): " + filePath + " (" + received + " bytes)");
+    }
+
+    // Gửi file bằng FileChannel.transferTo: dữ liệu đi thẳng từ page cache xuống socket, không qua heap.
+    // Hỗ trợ range: offset (tiếp tục lần tải bị gián đoạn) và length (mặc định tới cuối file).
+    // Luồng: header yêu cầu -> header "ok" (fileName, fileSize, offset, length) -> length byte dữ liệu thô.
+    private void handleDownload(JsonObject request, DataOutputStream out) throws IOException {
+        String filePath;
+        if (request.has("filePath") && !request.get("filePath").isJsonNull()) {
+            filePath = request.get("filePath").getAsString();
+        } else if (request.has("projectId")) {
+            try {
+                filePath = server.getProjectDAO().findLatestFilePath(request.get("projectId").getAsInt());
+            } catch (SQLException e) {
+                FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "Lỗi truy vấn database: " + e.getMessage()));
+                return;
+            }
+        } else {
+            FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "Thiếu filePath hoặc projectId"));
+            return;
+        }
+
+        Path path = filePath != null ? server.resolveStoredFile(filePath) : null;
+        if (path == null || !Files.isRegularFile(path) || !Files.isReadable(path)) {
+            FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "File không tồn tại hoặc không được phép tải: " + filePath));
+            return;
+        }
+
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = file.size();
+            long offset = request.has("offset") ? request.get("offset").getAsLong() : 0;
+            if (offset < 0 || offset > fileSize) {
+                FileTransferProtocol.writeHeader(out, FileTransferProtocol.status("error", "Offset không hợp lệ: " + offset + "/" + fileSize));
+                return;
+            }
+            long length = fileSize - offset;
+            if (request.has("length")) {
+                length = Math.min(length, Math.max(0, request.get("length").getAsLong()));
+            }
+
+            JsonObject response = FileTransferProtocol.status("ok", "Bắt đầu gửi dữ liệu");
+            response.addProperty("fileName", path.getFileName().toString());
+            response.addProperty("fileSize", fileSize);
+            response.addProperty("offset", offset);
+            response.addProperty("length", length);
+            FileTransferProtocol.writeHeader(out, response);
+
+            // writeHeader đã flush nên có thể ghi tiếp trực tiếp vào channel của socket
+            WritableByteChannel target = socket.getChannel() != null ? socket.getChannel() : Channels.newChannel(out);
+            long sent = 0;
+            while (sent < length) {
+                long n = file.transferTo(offset + sent, length - sent, target);
+                if (n <= 0) {
+                    throw new IOException("File bị thay đổi trong lúc gửi: " + path);
+                }
+                sent += n;
+            }
+            out.flush();
+            System.out.println("File downloaded (zero-copy): " + path + " [" + offset + ", " + (offset + length) + ")");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.projectmanagement.socket;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Giao thức truyền file nhị phân trên cổng riêng (TRANSFER_PORT), tách khỏi kênh JSON theo dòng:
+//   header:  [int độ dài][JSON UTF-8]            - yêu cầu/phản hồi, ví dụ {"action":"upload", ...}
+//   chunk:   [int độ dài][dữ liệu thô]           - client -> server, độ dài 1..MAX_CHUNK_SIZE
+//   ack:     [long tổng số byte đã ghi xuống đĩa] - server -> client sau mỗi chunk
+// Luồng upload: header yêu cầu -> header "ready" -> các chunk/ack -> header kết quả.
+// Luồng download: header yêu cầu (filePath/projectId, offset, length) -> header "ok" -> length byte dữ liệu thô.
+public final class FileTransferProtocol {
+    public static final int TRANSFER_PORT = 8889;
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int MAX_CHUNK_SIZE = 1024 * 1024;
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    private static final Gson GSON = new Gson();
+
+    private FileTransferProtocol() {
+    }
+
+    public static void writeHeader(DataOutputStream out, JsonObject header) throws IOException {
+        byte[] bytes = GSON.toJson(header).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+    }
+
+    public static JsonObject readHeader(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length <= 0 || length > MAX_HEADER_SIZE) {
+            throw new IOException("Header không hợp lệ, độ dài: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return GSON.fromJson(new String(bytes, StandardCharsets.UTF_8), JsonObject.class);
+    }
+
+    // Header phản hồi dạng {"status": ..., "message": ...}
+    public static JsonObject status(String status, String message) {
+        JsonObject header = new JsonObject();
+        header.addProperty("status", status);
+        header.addProperty("message", message);
+        return header;
+    }
+}
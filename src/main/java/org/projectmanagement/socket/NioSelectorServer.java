@@ -0,0 +1,390 @@
+package org.projectmanagement.socket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Chế độ server không chặn cho kênh JSON theo dòng: vài thread I/O dùng Selector để đọc, tách dòng và ghi,
+// còn việc xử lý tin nhắn (truy vấn DB, ghi file) chạy trên pool worker do ProjectSocketServer cung cấp.
+// Kết nối rảnh không giữ thread hay bộ đệm nào nên server giữ được hàng nghìn phiên connect cùng lúc.
+class NioSelectorServer {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // Một dòng JSON dài hơn giới hạn này (ví dụ upload base64 quá lớn) thì đóng kết nối
+    private static final int MAX_LINE_BYTES = Integer.getInteger("socket.nio.maxLineBytes", 16 * 1024 * 1024);
+
+    private final ProjectSocketServer server;
+    private final int port;
+    private final IoLoop[] ioLoops;
+    private final ExecutorService workers;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    // workers: pool xử lý tin nhắn, có thể là pool giới hạn (từ chối khi đầy) hoặc executor virtual thread
+    NioSelectorServer(ProjectSocketServer server, int port, int ioThreads, ExecutorService workers) throws IOException {
+        this.server = server;
+        this.port = port;
+        this.ioLoops = new IoLoop[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            ioLoops[i] = new IoLoop();
+        }
+        this.workers = workers;
+    }
+
+    // Chấp nhận kết nối trên thread gọi (chặn cho tới khi stop()) và chia đều cho các thread I/O
+    void serve() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        running = true;
+        for (int i = 0; i < ioLoops.length; i++) {
+            Thread ioThread = new Thread(ioLoops[i], "socket-io-" + (i + 1));
+            ioThread.setDaemon(true);
+            ioThread.start();
+        }
+        System.out.println("Socket Server (NIO) đã khởi động trên port " + port + " với " + ioLoops.length + " thread I/O");
+
+        int next = 0;
+        while (running) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Lỗi chấp nhận kết nối: " + e.getMessage());
+                    continue;
+                }
+                break;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+            } catch (IOException e) {
+                System.err.println("Lỗi cấu hình kết nối mới: " + e.getMessage());
+                channel.close();
+                continue;
+            }
+            ioLoops[next].register(channel);
+            next = (next + 1) % ioLoops.length;
+        }
+    }
+
+    void stop() {
+        running = false;
+        try {
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Lỗi khi đóng cổng NIO: " + e.getMessage());
+        }
+        for (IoLoop loop : ioLoops) {
+            loop.selector.wakeup();
+        }
+        workers.shutdown();
+    }
+
+    int getConnectionCount() {
+        int total = 0;
+        for (IoLoop loop : ioLoops) {
+            total += loop.connections.get();
+        }
+        return total;
+    }
+
+    // Một thread I/O với Selector riêng; chỉ thread này chạm vào SelectionKey và bộ đệm đọc của nó
+    private final class IoLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> pendingRegistrations = new ConcurrentLinkedQueue<>();
+        private final Queue<Session> pendingWrites = new ConcurrentLinkedQueue<>();
+        // Dùng chung cho mọi kết nối của loop: dữ liệu được tách dòng ngay sau khi đọc
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private final AtomicInteger connections = new AtomicInteger();
+
+        IoLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            pendingRegistrations.add(channel);
+            selector.wakeup();
+        }
+
+        void requestWrite(Session session) {
+            pendingWrites.add(session);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    processRegistrations();
+                    processPendingWrites();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Session session = (Session) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                session.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                session.flush();
+                            }
+                        } catch (IOException e) {
+                            session.close();
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) {
+                    System.err.println("Lỗi thread I/O: " + e.getMessage());
+                }
+            } finally {
+                closeAll();
+            }
+        }
+
+        private void processRegistrations() {
+            SocketChannel channel;
+            while ((channel = pendingRegistrations.poll()) != null) {
+                try {
+                    Session session = new Session(channel, this);
+                    session.key = channel.register(selector, SelectionKey.OP_READ, session);
+                    connections.incrementAndGet();
+                } catch (IOException e) {
+                    System.err.println("Lỗi đăng ký kết nối: " + e.getMessage());
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+
+        private void processPendingWrites() {
+            Session session;
+            while ((session = pendingWrites.poll()) != null) {
+                session.writeScheduled.set(false);
+                if (session.closeRequested) {
+                    session.close();
+                    continue;
+                }
+                try {
+                    session.flush();
+                } catch (IOException e) {
+                    session.close();
+                }
+            }
+        }
+
+        private void closeAll() {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Session) {
+                    ((Session) key.attachment()).close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // Trạng thái của một kết nối. Đọc/ghi socket chỉ diễn ra trên thread I/O; send() có thể gọi từ bất kỳ thread nào
+    final class Session {
+        private final SocketChannel channel;
+        private final IoLoop loop;
+        private final ProjectSocketServer.ClientConnection connection;
+        private SelectionKey key;
+        // Phần dòng chưa hoàn chỉnh từ lần đọc trước; null khi không có nên kết nối rảnh không tốn bộ đệm
+        private ByteArrayOutputStream partialLine;
+        // Các dòng của kết nối được xử lý tuần tự, mỗi lúc nhiều nhất một worker
+        private final Queue<String> inbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean processing = new AtomicBoolean();
+        // Hàng đợi gửi có giới hạn OUTBOUND_QUEUE_CAPACITY tin nhắn (giới hạn mềm, đếm bằng outboxSize)
+        private final Queue<ByteBuffer> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger outboxSize = new AtomicInteger();
+        // Thời điểm ghi xong tin nhắn gần nhất (hoặc hàng đợi bắt đầu có dữ liệu), để phát hiện client chậm
+        private volatile long lastProgressNanos = System.nanoTime();
+        private final AtomicBoolean writeScheduled = new AtomicBoolean();
+        // Thread khác yêu cầu đóng kết nối; việc đóng thực sự luôn diễn ra trên thread I/O
+        private volatile boolean closeRequested;
+        private volatile boolean closed;
+
+        Session(SocketChannel channel, IoLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+            this.connection = server.newNioConnection(this);
+        }
+
+        // droppable = true cho thông báo broadcast: hàng đợi đầy thì bỏ. Phản hồi không thể chờ vì worker
+        // không được chặn, nên hàng đợi đầy khi gửi phản hồi là ngắt kết nối ngay
+        void send(String message, boolean droppable) {
+            if (closed || closeRequested) {
+                return;
+            }
+            if (outboxSize.get() >= ProjectSocketServer.OUTBOUND_QUEUE_CAPACITY) {
+                if (!droppable) {
+                    requestClose("hàng đợi gửi đầy khi gửi phản hồi");
+                } else if (System.nanoTime() - lastProgressNanos
+                        > TimeUnit.MILLISECONDS.toNanos(ProjectSocketServer.SLOW_CONSUMER_TIMEOUT_MS)) {
+                    requestClose("không nhận dữ liệu trong " + ProjectSocketServer.SLOW_CONSUMER_TIMEOUT_MS + "ms");
+                }
+                return;
+            }
+            if (outboxSize.getAndIncrement() == 0) {
+                lastProgressNanos = System.nanoTime();
+            }
+            outbox.add(ByteBuffer.wrap((message + "\n").getBytes(StandardCharsets.UTF_8)));
+            scheduleWrite();
+        }
+
+        private void requestClose(String reason) {
+            System.err.println("Ngắt kết nối client chậm " + channel.socket().getRemoteSocketAddress() + ": " + reason);
+            closeRequested = true;
+            scheduleWrite();
+        }
+
+        private void scheduleWrite() {
+            if (writeScheduled.compareAndSet(false, true)) {
+                loop.requestWrite(this);
+            }
+        }
+
+        private void read() throws IOException {
+            ByteBuffer buffer = loop.readBuffer;
+            buffer.clear();
+            int n = channel.read(buffer);
+            if (n < 0) {
+                close();
+                return;
+            }
+            byte[] data = buffer.array();
+            int start = 0;
+            for (int i = 0; i < n; i++) {
+                if (data[i] != '\n') {
+                    continue;
+                }
+                String line;
+                if (partialLine == null) {
+                    line = new String(data, start, i - start, StandardCharsets.UTF_8);
+                } else {
+                    partialLine.write(data, start, i - start);
+                    line = new String(partialLine.toByteArray(), StandardCharsets.UTF_8);
+                    partialLine = null;
+                }
+                if (line.endsWith("\r")) {
+                    line = line.substring(0, line.length() - 1);
+                }
+                if (!line.isEmpty()) {
+                    inbox.add(line);
+                }
+                start = i + 1;
+            }
+            if (start < n) {
+                if (partialLine == null) {
+                    partialLine = new ByteArrayOutputStream();
+                }
+                partialLine.write(data, start, n - start);
+                if (partialLine.size() > MAX_LINE_BYTES) {
+                    partialLine = null;
+                    connection.sendErrorResponse("Tin nhắn vượt quá " + MAX_LINE_BYTES + " byte");
+                    flush();
+                    close();
+                    return;
+                }
+            }
+            scheduleProcessing();
+        }
+
+        private void scheduleProcessing() {
+            if (inbox.isEmpty() || !processing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                workers.execute(this::processInbox);
+            } catch (RejectedExecutionException e) {
+                processing.set(false);
+                // Hàng đợi worker đã đầy: bỏ các yêu cầu đang chờ của kết nối này và báo client thử lại
+                inbox.clear();
+                connection.sendErrorResponse("Server đang quá tải, vui lòng thử lại sau");
+            }
+        }
+
+        private void processInbox() {
+            try {
+                String line;
+                while (!closed && (line = inbox.poll()) != null) {
+                    try {
+                        connection.handleClientMessage(line);
+                    } catch (RuntimeException e) {
+                        System.err.println("Lỗi xử lý tin nhắn: " + e.getMessage());
+                    }
+                }
+            } finally {
+                processing.set(false);
+                // Dòng mới có thể đến sau vòng lặp trên nhưng trước khi hạ cờ processing
+                if (!closed) {
+                    scheduleProcessing();
+                }
+            }
+        }
+
+        // Ghi đến khi hết dữ liệu hoặc socket đầy; còn dữ liệu thì chờ OP_WRITE
+        private void flush() throws IOException {
+            if (closed || !key.isValid()) {
+                return;
+            }
+            ByteBuffer buffer;
+            while ((buffer = outbox.peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                outbox.poll();
+                outboxSize.decrementAndGet();
+                lastProgressNanos = System.nanoTime();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Lỗi đóng kết nối: " + e.getMessage());
+            }
+            outbox.clear();
+            outboxSize.set(0);
+            inbox.clear();
+            loop.connections.decrementAndGet();
+            connection.unregister();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.projectmanagement.socket;
+
+import org.projectmanagement.models.Project;
+import org.projectmanagement.models.ProjectStatusView;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+// Nội dung có cấu trúc của thông báo thay đổi đồ án (serialize bằng Gson, đi kèm action "notification").
+// version tăng dần 1 đơn vị trên toàn server cho mỗi thay đổi; client thấy khoảng trống version
+// nghĩa là đã lỡ thông báo và phải tải lại toàn bộ thay vì vá từng dòng.
+public class ProjectChangeEvent {
+    public static final String FIELD_STATUS = "status";
+    public static final String FIELD_NGAY_NOP = "ngayNop";
+    public static final String FIELD_LATEST_FILE = "latestFilePath";
+
+    private int projectId;
+    private long version;
+    private List<String> changedFields;
+    // Giá trị mới của các trường đã thay đổi; trường không thay đổi để null
+    private String status;
+    private Long ngayNop; // epoch millis
+    private String latestFilePath;
+
+    public ProjectChangeEvent() {
+    }
+
+    // Lấy giá trị mới của các trường changedFields từ trạng thái vừa ghi; latestFilePath là file vừa nộp (null nếu không có)
+    public ProjectChangeEvent(ProjectStatusView view, String latestFilePath, long version, String... changedFields) {
+        this.projectId = view.getProjectId();
+        this.version = version;
+        this.changedFields = Arrays.asList(changedFields);
+        if (hasChanged(FIELD_STATUS)) {
+            this.status = view.getStatus();
+        }
+        if (hasChanged(FIELD_NGAY_NOP) && view.getNgayNop() != null) {
+            this.ngayNop = view.getNgayNop().getTime();
+        }
+        if (hasChanged(FIELD_LATEST_FILE)) {
+            this.latestFilePath = latestFilePath;
+        }
+    }
+
+    public boolean hasChanged(String field) {
+        return changedFields != null && changedFields.contains(field);
+    }
+
+    // Áp các trường đã thay đổi lên bản sao dự án đang hiển thị ở client
+    public void applyTo(Project project) {
+        if (hasChanged(FIELD_STATUS)) {
+            project.setStatus(status);
+        }
+        if (hasChanged(FIELD_NGAY_NOP)) {
+            project.setNgayNop(ngayNop != null ? new Date(ngayNop) : null);
+        }
+        if (hasChanged(FIELD_LATEST_FILE) && latestFilePath != null) {
+            project.getFilePaths().add(latestFilePath);
+        }
+    }
+
+    public int getProjectId() { return projectId; }
+    public long getVersion() { return version; }
+    public List<String> getChangedFields() { return changedFields; }
+    public String getStatus() { return status; }
+    public Long getNgayNop() { return ngayNop; }
+    public String getLatestFilePath() { return latestFilePath; }
+}
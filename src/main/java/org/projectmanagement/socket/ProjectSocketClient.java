@@ -1,18 +1,37 @@
 package org.projectmanagement.socket;
 
+import org.projectmanagement.dao.ProjectDAO;
+import org.projectmanagement.dao.ReferenceDataCache;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import org.projectmanagement.models.ProjectStatusView;
 
 import javax.swing.*;
 import java.io.*;
 import java.net.Socket;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public class ProjectSocketClient {
     private static final String SERVER_HOST = "localhost";
     private static final int SERVER_PORT = 8888;
+    // Số chunk upload được gửi trước khi phải chờ ack từ server
+    private static final int UPLOAD_ACK_WINDOW = 8;
+    // Thời gian chờ phản hồi mặc định cho một yêu cầu trên kênh JSON
+    public static final long DEFAULT_REQUEST_TIMEOUT_MS = 10000;
 
     private Socket socket;
     private BufferedReader reader;
@@ -25,6 +44,18 @@ public class ProjectSocketClient {
     private Consumer<String> onNotificationReceived;
     private Consumer<String> onFileUploadProgress;
     private Consumer<String> onFileDownloadProgress;
+    private Consumer<ProjectChangeEvent> onProjectChanged;
+    private Runnable onProjectsOutOfSync;
+    // Version của thông báo thay đổi đồ án gần nhất đã nhận, -1 khi chưa có mốc từ server
+    private final AtomicLong lastProjectVersion = new AtomicLong(-1);
+    // Yêu cầu đang chờ phản hồi theo requestId; server trả lại requestId nên nhiều yêu cầu
+    // có thể được gửi liên tiếp trên cùng kết nối mà không phải chờ nhau
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final ConcurrentHashMap<Long, CompletableFuture<JsonObject>> pendingRequests = new ConcurrentHashMap<>();
+    // Chuyển tiếp việc sửa sinh viên/giảng viên trong tiến trình này tới server để các client khác xóa cache
+    private final Consumer<String> referenceDataListener = this::notifyReferenceDataChanged;
+    // Chuyển tiếp việc sửa đồ án trong tiến trình này tới server để server bỏ trạng thái đang cache
+    private final IntConsumer projectStatusListener = this::notifyProjectChanged;
 
     public ProjectSocketClient() {
         this.gson = new Gson();
@@ -48,6 +79,8 @@ public class ProjectSocketClient {
                 startMessageListener();
 
                 isConnected = true;
+                ReferenceDataCache.addLocalChangeListener(referenceDataListener);
+                ProjectDAO.addStatusChangeListener(projectStatusListener);
                 return true;
 
             } catch (IOException e) {
@@ -68,6 +101,8 @@ public class ProjectSocketClient {
                 if (isConnected) {
                     System.err.println("Lỗi đọc tin nhắn từ server: " + e.getMessage());
                 }
+            } finally {
+                failPendingRequests(new IOException("Mất kết nối tới server"));
             }
         });
         listenerThread.setDaemon(true);
@@ -78,6 +113,9 @@ public class ProjectSocketClient {
     private void handleServerMessage(String message) {
         try {
             JsonObject response = gson.fromJson(message, JsonObject.class);
+            if (completePendingRequest(response)) {
+                return;
+            }
             String action = response.get("action").getAsString();
 
             switch (action) {
@@ -88,6 +126,15 @@ public class ProjectSocketClient {
                         SwingUtilities.invokeLater(() ->
                                 onNotificationReceived.accept(type + ": " + notificationMessage));
                     }
+                    handleProjectChange(response, response.get("type").getAsString());
+                    break;
+                case "connect_response":
+                    if (response.has("projectVersion")) {
+                        lastProjectVersion.set(response.get("projectVersion").getAsLong());
+                    }
+                    break;
+                case "reference_data_changed":
+                    ReferenceDataCache.invalidateFromRemote(response.get("entity").getAsString());
                     break;
                 case "upload_response":
                     handleUploadResponse(response);
@@ -105,69 +152,151 @@ public class ProjectSocketClient {
             System.err.println("Lỗi xử lý tin nhắn từ server: " + e.getMessage());
         }
     }
+// Thông báo thay đổi đồ án: version liền mạch thì chỉ vá dòng tương ứng,
+    // có khoảng trống version (lỡ thông báo) hoặc thông báo không có payload thì yêu cầu tải lại toàn bộ
+    private void handleProjectChange(JsonObject notification, String type) {
+        if (!notification.has("projectId") || !notification.has("version")) {
+            if (type.contains("project") && onProjectsOutOfSync != null) {
+                SwingUtilities.invokeLater(onProjectsOutOfSync);
+            }
+            return;
+        }
+        ProjectChangeEvent event = gson.fromJson(notification, ProjectChangeEvent.class);
+        long previous = lastProjectVersion.getAndSet(event.getVersion());
+        if (previous < 0 || event.getVersion() != previous + 1) {
+            System.out.println("Phát hiện lỡ thông báo đồ án (version " + previous + " -> " + event.getVersion() + "), tải lại toàn bộ");
+            if (onProjectsOutOfSync != null) {
+                SwingUtilities.invokeLater(onProjectsOutOfSync);
+            }
+        } else if (onProjectChanged != null) {
+            SwingUtilities.invokeLater(() -> onProjectChanged.accept(event));
+        }
+    }
 // Phương thức uploadFile để tải file lên server
-    // Đây là nơi gửi file từ client lên server, bao gồm việc đọc file, mã hóa base64 và gửi yêu cầu upload
+    // Gửi file qua cổng truyền nhị phân (FileTransferProtocol): đọc và gửi từng chunk, tiến độ tính theo
+    // số byte server đã xác nhận ghi xuống đĩa. Bộ nhớ dùng chỉ bằng một chunk, không phụ thuộc kích thước file.
     public CompletableFuture<UploadResult> uploadFile(String filePath, int projectId,
                                                       Consumer<Integer> progressCallback) {
         return CompletableFuture.supplyAsync(() -> {
-            try {
-                File file = new File(filePath);
-                if (!file.exists()) {
-                    return new UploadResult(false, "File không tồn tại", null);
-                }
+            File file = new File(filePath);
+            if (!file.exists()) {
+                return new UploadResult(false, "File không tồn tại", null);
+            }
 
-                // Đọc file và encode base64
-                byte[] fileData = Files.readAllBytes(file.toPath());
-                String encodedData = java.util.Base64.getEncoder().encodeToString(fileData);
+            long fileSize = file.length();
+            try (Socket transferSocket = new Socket(SERVER_HOST, FileTransferProtocol.TRANSFER_PORT);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(transferSocket.getInputStream()));
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(transferSocket.getOutputStream()));
+                 InputStream fileIn = new FileInputStream(file)) {
 
-                // Gửi yêu cầu upload
                 JsonObject uploadRequest = new JsonObject();
-                uploadRequest.addProperty("action", "upload_file");
+                uploadRequest.addProperty("action", "upload");
                 uploadRequest.addProperty("fileName", file.getName());
-                uploadRequest.addProperty("fileData", encodedData);
+                uploadRequest.addProperty("fileSize", fileSize);
+                uploadRequest.addProperty("chunkSize", FileTransferProtocol.DEFAULT_CHUNK_SIZE);
                 uploadRequest.addProperty("projectId", projectId);
                 uploadRequest.addProperty("userId", userId);
+                FileTransferProtocol.writeHeader(out, uploadRequest);
 
-                writer.println(gson.toJson(uploadRequest));
+                JsonObject ready = FileTransferProtocol.readHeader(in);
+                if (!"ready".equals(ready.get("status").getAsString())) {
+                    return new UploadResult(false, ready.get("message").getAsString(), null);
+                }
 
-                // Báo cáo tiến độ (giả lập)
-                if (progressCallback != null) {
-                    for (int i = 0; i <= 100; i += 10) {
-                        final int progress = i;
-                        SwingUtilities.invokeLater(() -> progressCallback.accept(progress));
-                        Thread.sleep(100);
+                byte[] buffer = new byte[FileTransferProtocol.DEFAULT_CHUNK_SIZE];
+                long sent = 0;
+                int unacked = 0;
+                int lastProgress = -1;
+                while (sent < fileSize) {
+                    int read = fileIn.read(buffer, 0, (int) Math.min(buffer.length, fileSize - sent));
+                    if (read < 0) {
+                        throw new IOException("File bị thay đổi trong lúc upload");
+                    }
+                    out.writeInt(read);
+                    out.write(buffer, 0, read);
+                    sent += read;
+                    // Gửi trước tối đa UPLOAD_ACK_WINDOW chunk rồi mới chờ ack để không dừng sau mỗi chunk
+                    if (++unacked >= UPLOAD_ACK_WINDOW) {
+                        out.flush();
+                        lastProgress = reportProgress(in.readLong(), fileSize, lastProgress, progressCallback);
+                        unacked--;
                     }
                 }
+                out.flush();
+                while (unacked > 0) {
+                    lastProgress = reportProgress(in.readLong(), fileSize, lastProgress, progressCallback);
+                    unacked--;
+                }
+                if (fileSize == 0) {
+                    reportProgress(0, 0, lastProgress, progressCallback);
+                }
 
-                return new UploadResult(true, "Upload thành công", null);
+                JsonObject result = FileTransferProtocol.readHeader(in);
+                boolean success = "success".equals(result.get("status").getAsString());
+                String serverFilePath = success ? result.get("filePath").getAsString() : null;
+                return new UploadResult(success, result.get("message").getAsString(), serverFilePath);
 
             } catch (Exception e) {
                 return new UploadResult(false, "Lỗi upload: " + e.getMessage(), null);
             }
         });
     }
+
+    // Báo tiến độ theo số byte server đã xác nhận, chỉ khi phần trăm thay đổi
+    private int reportProgress(long acked, long total, int lastProgress, Consumer<Integer> progressCallback) {
+        int progress = total == 0 ? 100 : (int) (acked * 100 / total);
+        if (progressCallback != null && progress != lastProgress) {
+            SwingUtilities.invokeLater(() -> progressCallback.accept(progress));
+        }
+        return progress;
+    }
 // Phương thức downloadFile để tải file từ server về
+    // Tải qua cổng truyền nhị phân, dữ liệu được ghi nối vào localFilePath + ".part". Nếu lần tải trước bị
+    // gián đoạn thì chỉ yêu cầu phần còn thiếu (offset = số byte đã có); tải xong mới đổi tên thành file chính.
     public CompletableFuture<DownloadResult> downloadFile(String serverFilePath, String localFilePath,
                                                           Consumer<Integer> progressCallback) {
         return CompletableFuture.supplyAsync(() -> {
+            Path targetPath = Paths.get(localFilePath);
+            Path partPath = Paths.get(localFilePath + ".part");
             try {
-                // Gửi yêu cầu download
-                JsonObject downloadRequest = new JsonObject();
-                downloadRequest.addProperty("action", "download_file");
-                downloadRequest.addProperty("filePath", serverFilePath);
-                downloadRequest.addProperty("userId", userId);
-
-                writer.println(gson.toJson(downloadRequest));
-
-                // Báo cáo tiến độ (giả lập)
-                if (progressCallback != null) {
-                    for (int i = 0; i <= 100; i += 10) {
-                        final int progress = i;
-                        SwingUtilities.invokeLater(() -> progressCallback.accept(progress));
-                        Thread.sleep(100);
+                long offset = Files.exists(partPath) ? Files.size(partPath) : 0;
+                try (Socket transferSocket = new Socket(SERVER_HOST, FileTransferProtocol.TRANSFER_PORT);
+                     DataInputStream in = new DataInputStream(new BufferedInputStream(transferSocket.getInputStream()));
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(transferSocket.getOutputStream()))) {
+
+                    JsonObject downloadRequest = new JsonObject();
+                    downloadRequest.addProperty("action", "download");
+                    downloadRequest.addProperty("filePath", serverFilePath);
+                    downloadRequest.addProperty("offset", offset);
+                    downloadRequest.addProperty("userId", userId);
+                    FileTransferProtocol.writeHeader(out, downloadRequest);
+
+                    JsonObject response = FileTransferProtocol.readHeader(in);
+                    if (!"ok".equals(response.get("status").getAsString())) {
+                        // Phần đã tải không còn khớp với file trên server thì bỏ để lần sau tải lại từ đầu
+                        Files.deleteIfExists(partPath);
+                        return new DownloadResult(false, response.get("message").getAsString(), null);
+                    }
+                    long fileSize = response.get("fileSize").getAsLong();
+                    long length = response.get("length").getAsLong();
+
+                    byte[] buffer = new byte[FileTransferProtocol.DEFAULT_CHUNK_SIZE];
+                    long received = 0;
+                    int lastProgress = reportProgress(offset, fileSize, -1, progressCallback);
+                    try (OutputStream fileOut = new FileOutputStream(partPath.toFile(), true)) {
+                        while (received < length) {
+                            int read = in.read(buffer, 0, (int) Math.min(buffer.length, length - received));
+                            if (read < 0) {
+                                throw new EOFException("Mất kết nối sau " + (offset + received) + "/" + fileSize
+                                        + " byte, có thể tải tiếp lần sau");
+                            }
+                            fileOut.write(buffer, 0, read);
+                            received += read;
+                            lastProgress = reportProgress(offset + received, fileSize, lastProgress, progressCallback);
+                        }
                     }
                 }
-
+                Files.move(partPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
                 return new DownloadResult(true, "Download thành công", localFilePath);
 
             } catch (Exception e) {
@@ -176,23 +305,124 @@ public class ProjectSocketClient {
         });
     }
 
-    public void submitProject(int projectId, String status) {
+    // Hoàn thành khi nhận submit_response (hoặc error) của đúng yêu cầu này
+    public CompletableFuture<JsonObject> submitProject(int projectId, String status) {
         JsonObject submitRequest = new JsonObject();
         submitRequest.addProperty("action", "submit_project");
         submitRequest.addProperty("projectId", projectId);
         submitRequest.addProperty("status", status);
         submitRequest.addProperty("userId", userId);
 
-        writer.println(gson.toJson(submitRequest));
+        return sendRequest(submitRequest, DEFAULT_REQUEST_TIMEOUT_MS);
     }
 
-    public void getProjectStatus(int projectId) {
+    // Hoàn thành khi nhận project_status_response (hoặc error) của đúng yêu cầu này
+    public CompletableFuture<JsonObject> getProjectStatus(int projectId) {
         JsonObject statusRequest = new JsonObject();
         statusRequest.addProperty("action", "get_project_status");
         statusRequest.addProperty("projectId", projectId);
         statusRequest.addProperty("userId", userId);
 
-        writer.println(gson.toJson(statusRequest));
+        return sendRequest(statusRequest, DEFAULT_REQUEST_TIMEOUT_MS);
+    }
+
+    // Trạng thái của nhiều đồ án trong một yêu cầu get_project_statuses; id không tồn tại bị bỏ qua.
+    // Future kết thúc bằng lỗi nếu server trả về lỗi
+    public CompletableFuture<List<ProjectStatusView>> getProjectStatuses(List<Integer> projectIds) {
+        JsonObject statusRequest = new JsonObject();
+        statusRequest.addProperty("action", "get_project_statuses");
+        JsonArray ids = new JsonArray();
+        projectIds.forEach(ids::add);
+        statusRequest.add("projectIds", ids);
+        statusRequest.addProperty("userId", userId);
+
+        return sendRequest(statusRequest, DEFAULT_REQUEST_TIMEOUT_MS).thenApply(response -> {
+            if (!"success".equals(response.get("status").getAsString())) {
+                throw new IllegalStateException(response.get("message").getAsString());
+            }
+            List<ProjectStatusView> statuses = new ArrayList<>();
+            for (JsonElement element : response.getAsJsonArray("projects")) {
+                JsonArray row = element.getAsJsonArray();
+                statuses.add(new ProjectStatusView(row.get(0).getAsInt(),
+                        row.get(2).isJsonNull() ? null : row.get(2).getAsString(),
+                        row.get(1).isJsonNull() ? null : row.get(1).getAsString(),
+                        row.get(3).isJsonNull() ? null : new Date(row.get(3).getAsLong())));
+            }
+            return statuses;
+        });
+    }
+
+    // Báo server rằng danh sách sinh viên/giảng viên vừa thay đổi; server chuyển tiếp cho các client khác
+    public void notifyReferenceDataChanged(String entity) {
+        JsonObject request = new JsonObject();
+        request.addProperty("action", "reference_data_changed");
+        request.addProperty("entity", entity);
+        request.addProperty("userId", userId);
+
+        sendRequest(request, DEFAULT_REQUEST_TIMEOUT_MS).whenComplete((response, error) -> {
+            if (error != null) {
+                System.err.println("Không gửi được thông báo thay đổi " + entity + ": " + error.getMessage());
+            }
+        });
+    }
+
+    // Báo server rằng đồ án vừa được sửa/xóa trực tiếp trong DB, để server không trả trạng thái cũ từ cache
+    public void notifyProjectChanged(int projectId) {
+        JsonObject request = new JsonObject();
+        request.addProperty("action", "project_changed");
+        request.addProperty("projectId", projectId);
+        request.addProperty("userId", userId);
+
+        sendRequest(request, DEFAULT_REQUEST_TIMEOUT_MS).whenComplete((response, error) -> {
+            if (error != null) {
+                System.err.println("Không gửi được thông báo thay đổi đồ án " + projectId + ": " + error.getMessage());
+            }
+        });
+    }
+
+    // Gửi yêu cầu kèm requestId và trả về future hoàn thành bằng phản hồi có cùng requestId.
+    // Phản hồi lỗi của server ({"action":"error"}) cũng hoàn thành future, người gọi kiểm tra "status".
+    // Quá timeoutMs thì future kết thúc với TimeoutException
+    public CompletableFuture<JsonObject> sendRequest(JsonObject request, long timeoutMs) {
+        CompletableFuture<JsonObject> future = new CompletableFuture<>();
+        if (!isConnected || writer == null) {
+            future.completeExceptionally(new IOException("Chưa kết nối tới server"));
+            return future;
+        }
+        long requestId = nextRequestId.incrementAndGet();
+        request.addProperty("requestId", requestId);
+        pendingRequests.put(requestId, future);
+        future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((response, error) -> pendingRequests.remove(requestId));
+
+        writer.println(gson.toJson(request));
+        if (writer.checkError()) {
+            future.completeExceptionally(new IOException("Không gửi được yêu cầu tới server"));
+        }
+        return future;
+    }
+
+    // Trả về true nếu tin nhắn là phản hồi của một yêu cầu đang chờ
+    private boolean completePendingRequest(JsonObject response) {
+        if (!response.has("requestId")) {
+            return false;
+        }
+        CompletableFuture<JsonObject> future = pendingRequests.remove(response.get("requestId").getAsLong());
+        if (future == null) {
+            // Yêu cầu đã hết thời gian chờ, bỏ qua phản hồi đến muộn
+            return true;
+        }
+        future.complete(response);
+        return true;
+    }
+
+    private void failPendingRequests(Exception cause) {
+        for (Long requestId : pendingRequests.keySet()) {
+            CompletableFuture<JsonObject> future = pendingRequests.remove(requestId);
+            if (future != null) {
+                future.completeExceptionally(cause);
+            }
+        }
     }
 // Phương thức xử lý phản hồi upload
     // Đây là nơi nhận phản hồi từ server sau khi upload file, hiển thị thông báo thành công hoặc lỗi
@@ -244,6 +474,9 @@ public class ProjectSocketClient {
 
     public void disconnect() {
         isConnected = false;
+        ReferenceDataCache.removeLocalChangeListener(referenceDataListener);
+        ProjectDAO.removeStatusChangeListener(projectStatusListener);
+        failPendingRequests(new IOException("Đã ngắt kết nối"));
         try {
             if (socket != null && !socket.isClosed()) {
                 socket.close();
@@ -272,6 +505,14 @@ public class ProjectSocketClient {
         this.onFileDownloadProgress = callback;
     }
 
+    public void setOnProjectChanged(Consumer<ProjectChangeEvent> callback) {
+        this.onProjectChanged = callback;
+    }
+
+    public void setOnProjectsOutOfSync(Runnable callback) {
+        this.onProjectsOutOfSync = callback;
+    }
+
     public boolean isConnected() {
         return isConnected;
     }
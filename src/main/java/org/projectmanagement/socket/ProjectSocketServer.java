@@ -1,18 +1,39 @@
 package org.projectmanagement.socket;
 
 import org.projectmanagement.dao.ProjectDAO;
-import org.projectmanagement.models.Project;
+import org.projectmanagement.dao.ReferenceDataCache;
+import org.projectmanagement.dao.StatsDAO;
+import org.projectmanagement.models.ProjectStatusView;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import javax.sql.DataSource;
 import java.io.*;
 import java.net.*;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.file.*;
-import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.LongFunction;
 
 public class ProjectSocketServer {
     private static final int PORT = 8888;
@@ -20,19 +41,78 @@ public class ProjectSocketServer {
     private ServerSocket serverSocket;
     private boolean isRunning = false;
     private ExecutorService threadPool;
-    private Connection dbConnection;
+    // Cổng và pool riêng cho truyền file nhị phân, upload lớn không chiếm thread của kênh thông báo
+    private static final int TRANSFER_THREADS = Integer.getInteger("socket.transfer.threads", 4);
+    // Kết nối truyền file im lặng quá thời gian này (client treo, mất mạng nửa chừng) bị đóng để trả thread cho pool
+    private static final int TRANSFER_READ_TIMEOUT_MS = Integer.getInteger("socket.transfer.readTimeoutMs", 30000);
+    // Kích thước tối đa của một file upload (byte), mặc định 200 MB
+    static final long MAX_UPLOAD_BYTES = Long.getLong("socket.transfer.maxFileSize", 200L * 1024 * 1024);
+    // Số đồ án tối đa trong một yêu cầu get_project_statuses
+    private static final int MAX_STATUS_BATCH_SIZE = 1000;
+    private ServerSocketChannel transferServerChannel;
+    private ExecutorService transferPool;
+    // Chế độ kênh JSON: "blocking" (mỗi client một thread, mặc định) hoặc "nio" (Selector + pool worker),
+    // chọn qua -Dsocket.server.mode=nio. Các tham số socket.nio.* chỉ dùng cho chế độ nio.
+    private static final String SERVER_MODE = System.getProperty("socket.server.mode", "blocking");
+    private static final int NIO_IO_THREADS = Integer.getInteger("socket.nio.ioThreads",
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+    private static final int NIO_WORKER_THREADS = Integer.getInteger("socket.nio.workerThreads", 12);
+    private static final int NIO_WORKER_QUEUE = Integer.getInteger("socket.nio.workerQueue", 1000);
+    // "virtual": mỗi ClientHandler (blocking) hoặc mỗi lượt xử lý tin nhắn (nio) chạy trên một virtual thread,
+    // nên các lệnh JDBC chặn không giữ thread hệ điều hành; số truy vấn đồng thời vẫn do pool kết nối DB giới hạn.
+    // Cần JVM 21+; JVM cũ hơn sẽ dùng lại pool thread thường.
+    private static final String THREAD_MODE = System.getProperty("socket.server.threads", "platform");
+    private NioSelectorServer nioServer;
+    private DataSource dataSource;
     private ProjectDAO projectDAO;
     private Gson gson;
+    // Dùng ReentrantLock thay cho synchronized: virtual thread chờ lock không giữ chặt carrier thread
+    private final ReentrantLock broadcastLock = new ReentrantLock();
+    // Số thứ tự của thông báo thay đổi đồ án, client dùng để phát hiện thông báo bị lỡ
+    private final AtomicLong projectVersion = new AtomicLong();
+    // Số thứ tự upload trong tiến trình, ghép vào tên file để hai upload cùng một mili giây không trùng tên
+    private final AtomicLong uploadSequence = new AtomicLong();
 
     // Lưu trữ các client đang kết nối
-    private ConcurrentHashMap<String, ClientHandler> connectedClients;
-
-    public ProjectSocketServer(Connection dbConnection) {
-        this.dbConnection = dbConnection;
-        this.projectDAO = new ProjectDAO(dbConnection);
+    private ConcurrentHashMap<String, ClientConnection> connectedClients;
+    // Hàng đợi gửi của mỗi client có giới hạn. Client có hàng đợi đầy mà không nhận thêm được tin nhắn nào
+    // trong SLOW_CONSUMER_TIMEOUT_MS bị coi là client chậm và bị ngắt kết nối
+    static final int OUTBOUND_QUEUE_CAPACITY = Integer.getInteger("socket.outboundQueue", 256);
+    static final long SLOW_CONSUMER_TIMEOUT_MS = Long.getLong("socket.slowConsumerTimeoutMs", 10000L);
+    // Các writer task rút hàng đợi gửi của client ở chế độ blocking; chỉ chạy khi có dữ liệu chờ gửi
+    private ExecutorService writerPool;
+    // Chu kỳ dựng lại bảng thống kê project_stats để sửa sai lệch (phút, 0 = tắt)
+    private static final long STATS_RECONCILE_MINUTES = Long.getLong("stats.reconcileIntervalMinutes", 60L);
+    private ScheduledExecutorService statsReconciler;
+    // Cache trạng thái đồ án cho các yêu cầu hỏi trạng thái, upload và download (xem ProjectStatusCache).
+    // TTL ngắn chặn dữ liệu cũ do các lệnh ghi không báo cho server (sửa tay trong MySQL)
+    private static final int PROJECT_CACHE_MAX_ENTRIES = Integer.getInteger("socket.projectCache.maxEntries", 10000);
+    private static final long PROJECT_CACHE_TTL_MS = Long.getLong("socket.projectCache.ttlMs", 30000L);
+    private final ProjectStatusCache projectStatusCache =
+            new ProjectStatusCache(PROJECT_CACHE_MAX_ENTRIES, PROJECT_CACHE_TTL_MS);
+    private final IntConsumer projectStatusListener = projectStatusCache::invalidate;
+
+    public ProjectSocketServer(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.projectDAO = new ProjectDAO(dataSource);
+        // Lệnh ghi qua ProjectDAO của server (sửa, xóa, đổi trạng thái đồ án) làm mất hiệu lực phần tử trong cache
+        ProjectDAO.addStatusChangeListener(projectStatusListener);
         this.gson = new Gson();
         this.connectedClients = new ConcurrentHashMap<>();
-        this.threadPool = Executors.newFixedThreadPool(10);
+        this.threadPool = useVirtualThreads() ? newVirtualThreadExecutor() : null;
+        if (this.threadPool == null) {
+            this.threadPool = Executors.newFixedThreadPool(10);
+        }
+        this.transferPool = Executors.newFixedThreadPool(TRANSFER_THREADS);
+        this.writerPool = useVirtualThreads() ? newVirtualThreadExecutor() : null;
+        if (this.writerPool == null) {
+            AtomicInteger writerCount = new AtomicInteger();
+            this.writerPool = Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "socket-writer-" + writerCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
 
         // Tạo thư mục upload nếu chưa tồn tại và kiểm tra quyền
         initializeUploadDirectory();
@@ -62,10 +142,16 @@ public class ProjectSocketServer {
     }
 // Phương thức khởi động server
     public void start() {
+        if ("nio".equalsIgnoreCase(SERVER_MODE)) {
+            startNio();
+            return;
+        }
         try {
             serverSocket = new ServerSocket(PORT);
             isRunning = true;
             System.out.println("Socket Server đã khởi động trên port " + PORT);
+            startTransferListener();
+            startStatsReconciler();
 
             while (isRunning) {
                 Socket clientSocket = serverSocket.accept();
@@ -79,18 +165,134 @@ public class ProjectSocketServer {
         }
     }
 
+    // Chế độ NIO: start() vẫn chặn trên thread gọi giống chế độ blocking
+    private void startNio() {
+        try {
+            isRunning = true;
+            startTransferListener();
+            startStatsReconciler();
+            nioServer = new NioSelectorServer(this, PORT, NIO_IO_THREADS, newNioWorkers());
+            nioServer.serve();
+        } catch (IOException e) {
+            if (isRunning) {
+                System.err.println("Lỗi server socket (NIO): " + e.getMessage());
+            }
+        }
+    }
+
+    // Pool xử lý tin nhắn cho chế độ NIO: virtual thread nếu được bật, ngược lại pool cố định với hàng đợi giới hạn
+    private ExecutorService newNioWorkers() {
+        ExecutorService virtualWorkers = useVirtualThreads() ? newVirtualThreadExecutor() : null;
+        if (virtualWorkers != null) {
+            return virtualWorkers;
+        }
+        AtomicInteger workerCount = new AtomicInteger();
+        return new ThreadPoolExecutor(NIO_WORKER_THREADS, NIO_WORKER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(NIO_WORKER_QUEUE),
+                r -> new Thread(r, "socket-worker-" + workerCount.incrementAndGet()));
+    }
+
+    private static boolean useVirtualThreads() {
+        return "virtual".equalsIgnoreCase(THREAD_MODE);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() (JDK 21+) gọi qua reflection để bản build vẫn chạy trên JDK cũ hơn;
+    // trả về null nếu JVM hiện tại không hỗ trợ virtual thread
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            System.out.println("Sử dụng virtual thread cho xử lý client");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            System.err.println("JVM không hỗ trợ virtual thread (cần Java 21+), dùng pool thread thường");
+            return null;
+        }
+    }
+
+    // Lắng nghe cổng truyền file trên một thread riêng. Dùng ServerSocketChannel để mỗi kết nối có
+    // SocketChannel, cho phép download gửi file bằng FileChannel.transferTo
+    private void startTransferListener() throws IOException {
+        transferServerChannel = ServerSocketChannel.open();
+        transferServerChannel.bind(new InetSocketAddress(FileTransferProtocol.TRANSFER_PORT));
+        Thread acceptor = new Thread(() -> {
+            while (isRunning) {
+                try {
+                    SocketChannel transferChannel = transferServerChannel.accept();
+                    transferChannel.socket().setSoTimeout(TRANSFER_READ_TIMEOUT_MS);
+                    transferPool.submit(new FileTransferHandler(transferChannel.socket(), this));
+                } catch (IOException e) {
+                    if (isRunning) {
+                        System.err.println("Lỗi cổng truyền file: " + e.getMessage());
+                    }
+                }
+            }
+        }, "file-transfer-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("Cổng truyền file đã mở trên port " + FileTransferProtocol.TRANSFER_PORT);
+    }
+
+    // Đối soát định kỳ project_stats với bảng projects; chạy trên server để các client không cùng làm việc này
+    private void startStatsReconciler() {
+        if (STATS_RECONCILE_MINUTES <= 0 || statsReconciler != null) {
+            return;
+        }
+        StatsDAO statsDAO = new StatsDAO(dataSource);
+        statsReconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stats-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        statsReconciler.scheduleWithFixedDelay(() -> {
+            try {
+                statsDAO.reconcileSummary();
+                System.out.println("Đã đối soát bảng thống kê đồ án");
+            } catch (SQLException e) {
+                System.err.println("Lỗi đối soát bảng thống kê: " + e.getMessage());
+            }
+        }, STATS_RECONCILE_MINUTES, STATS_RECONCILE_MINUTES, TimeUnit.MINUTES);
+    }
+
     public void stop() {
         isRunning = false;
+        if (statsReconciler != null) {
+            statsReconciler.shutdownNow();
+        }
+        ProjectDAO.removeStatusChangeListener(projectStatusListener);
+        System.out.println(projectStatusCache.metrics());
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
             }
+            if (nioServer != null) {
+                nioServer.stop();
+            }
+            if (transferServerChannel != null && transferServerChannel.isOpen()) {
+                transferServerChannel.close();
+            }
             threadPool.shutdown();
+            writerPool.shutdown();
+            transferPool.shutdown();
         } catch (IOException e) {
             System.err.println("Lỗi khi đóng server: " + e.getMessage());
         }
     }
 
+    // Báo các client (trừ client gửi) rằng bảng sinh viên/giảng viên đã đổi. Gửi kiểu thông báo có thể bỏ:
+    // client lỡ thông báo vẫn tự làm mới cache khi hết TTL
+    void broadcastReferenceDataChanged(String entity, ClientConnection origin) {
+        JsonObject notification = new JsonObject();
+        notification.addProperty("action", "reference_data_changed");
+        notification.addProperty("entity", entity);
+        String jsonMessage = gson.toJson(notification);
+        connectedClients.values().forEach(client -> {
+            if (client != origin) {
+                client.sendNotification(jsonMessage);
+            }
+        });
+    }
+
     // Gửi thông báo đến tất cả client
     public void broadcastNotification(String message, String type) {
         JsonObject notification = new JsonObject();
@@ -100,12 +302,36 @@ public class ProjectSocketServer {
         notification.addProperty("timestamp", System.currentTimeMillis());
 
         String jsonMessage = gson.toJson(notification);
-        connectedClients.values().forEach(client -> client.sendMessage(jsonMessage));
+        connectedClients.values().forEach(client -> client.sendNotification(jsonMessage));
+    }
+
+    // Gửi thông báo thay đổi đồ án kèm payload (projectId, các trường thay đổi, version) để client chỉ vá dòng
+    // tương ứng. Giữ broadcastLock để các client nhận thông báo theo đúng thứ tự version.
+    public void broadcastProjectChange(ProjectStatusView view, String latestFilePath, String message, String type,
+                                       String... changedFields) {
+        broadcastChange(version -> new ProjectChangeEvent(view, latestFilePath, version, changedFields), message, type);
+    }
+
+    private void broadcastChange(LongFunction<ProjectChangeEvent> eventFactory, String message, String type) {
+        broadcastLock.lock();
+        try {
+            ProjectChangeEvent event = eventFactory.apply(projectVersion.incrementAndGet());
+            JsonObject notification = gson.toJsonTree(event).getAsJsonObject();
+            notification.addProperty("action", "notification");
+            notification.addProperty("type", type);
+            notification.addProperty("message", message);
+            notification.addProperty("timestamp", System.currentTimeMillis());
+
+            String jsonMessage = gson.toJson(notification);
+            connectedClients.values().forEach(client -> client.sendNotification(jsonMessage));
+        } finally {
+            broadcastLock.unlock();
+        }
     }
 
     // Gửi thông báo đến client cụ thể
     public void sendNotificationToUser(String userId, String message, String type) {
-        ClientHandler client = connectedClients.get(userId);
+        ClientConnection client = connectedClients.get(userId);
         if (client != null) {
             JsonObject notification = new JsonObject();
             notification.addProperty("action", "notification");
@@ -113,45 +339,81 @@ public class ProjectSocketServer {
             notification.addProperty("message", message);
             notification.addProperty("timestamp", System.currentTimeMillis());
 
-            client.sendMessage(gson.toJson(notification));
+            client.sendNotification(gson.toJson(notification));
         }
     }
 
-    private class ClientHandler implements Runnable {
-        private Socket socket;
-        private BufferedReader reader;
-        private PrintWriter writer;
-        private String userId;
-//Sử dụng ExecutorService với Executors.newFixedThreadPool(10) để quản lý nhiều thread xử lý các kết nối client đồng thời.
-//Mỗi ClientHandler được chạy trong một thread riêng (qua threadPool.submit(clientHandler)), cho phép server xử lý nhiều client cùng lúc.
-//Thread listener trong start() để chấp nhận kết nối mới từ serverSocket.accept().
-        public ClientHandler(Socket socket) {
-            this.socket = socket;
-            try {
-                reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                writer = new PrintWriter(socket.getOutputStream(), true);
-            } catch (IOException e) {
-                System.err.println("Lỗi khởi tạo client handler: " + e.getMessage());
-            }
+    // Đường dẫn lưu file upload: tên duy nhất theo dự án, thời điểm và số thứ tự upload, giữ lại phần mở rộng an toàn
+    String buildUploadPath(int projectId, String fileName) {
+        String extension = "";
+        int dotIndex = fileName.lastIndexOf('.');
+        if (dotIndex > 0 && dotIndex < fileName.length() - 1) {
+            extension = fileName.substring(dotIndex).replaceAll("[^A-Za-z0-9.]", "");
         }
+        return UPLOAD_DIR + "project_" + projectId + "_" + System.currentTimeMillis() + "_"
+                + uploadSequence.incrementAndGet() + extension;
+    }
 
-        @Override
-        public void run() {
-            try {
-                String inputLine;
-                while ((inputLine = reader.readLine()) != null) {
-                    handleClientMessage(inputLine);
-                }
-            } catch (IOException e) {
-                System.err.println("Lỗi xử lý client: " + e.getMessage());
-            } finally {
-                cleanup();
+    // Ghi file đã lưu vào project_files và cập nhật ngày nộp trong một transaction (ProjectDAO.commitUpload);
+    // không dùng lock của server, DB tự khóa dòng dự án. Trả về trạng thái sau cập nhật,
+    // hoặc null (và xóa file) nếu dự án đã bị xóa trong lúc upload.
+    // Không đưa trạng thái trả về vào cache: hai lệnh ghi đồng thời có thể đặt vào theo thứ tự ngược với lúc commit.
+    // commitUpload đã vô hiệu phần tử sau commit, lần đọc sau lấy từ DB
+    ProjectStatusView recordUpload(int projectId, String filePath) throws SQLException, IOException {
+        ProjectStatusView state = projectDAO.commitUpload(projectId, filePath, new java.util.Date());
+        if (state == null) {
+            projectStatusCache.invalidate(projectId);
+            Files.deleteIfExists(Paths.get(filePath));
+        }
+        return state;
+    }
+
+    // Trạng thái đồ án qua cache; null nếu không tồn tại
+    ProjectStatusView findProjectStatus(int projectId) throws SQLException {
+        return projectStatusCache.get(projectId, projectDAO::findStatusesByIds);
+    }
+
+    boolean projectExists(int projectId) throws SQLException {
+        return findProjectStatus(projectId) != null;
+    }
+
+    // Đường dẫn file đã lưu nếu nằm trong thư mục upload, null nếu nằm ngoài (chặn path traversal)
+    Path resolveStoredFile(String filePath) {
+        Path uploadRoot = Paths.get(UPLOAD_DIR).toAbsolutePath().normalize();
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+        return path.startsWith(uploadRoot) ? path : null;
+    }
+
+    ProjectDAO getProjectDAO() {
+        return projectDAO;
+    }
+
+    // Xử lý giao thức JSON theo dòng cho một client, dùng chung cho cả chế độ blocking và NIO.
+    // Lớp con chỉ cần cài đặt cách gửi một dòng về client.
+    abstract class ClientConnection {
+        protected String userId;
+        // requestId client gửi kèm yêu cầu đang xử lý, được trả lại trong phản hồi để client ghép đúng yêu cầu.
+        // Mỗi kết nối chỉ xử lý một yêu cầu tại một thời điểm nên không cần đồng bộ
+        private JsonElement currentRequestId;
+
+        // Phản hồi cho yêu cầu của chính client: không được bỏ, hàng đợi gửi đầy quá lâu thì ngắt kết nối
+        abstract void sendMessage(String message);
+
+        // Thông báo broadcast: chỉ xếp hàng, không bao giờ chặn; hàng đợi đầy thì bỏ thông báo.
+        // Client phát hiện version bị nhảy và tải lại toàn bộ, nên bỏ thông báo tương đương gộp chúng lại.
+        abstract void sendNotification(String message);
+
+        // Gỡ khỏi danh sách client đang kết nối (chỉ khi userId vẫn trỏ tới kết nối này)
+        void unregister() {
+            if (userId != null && connectedClients.remove(userId, this)) {
+                System.out.println("User " + userId + " đã ngắt kết nối");
             }
         }
 // Xử lý các tin nhắn từ client
-        private void handleClientMessage(String message) {
+        void handleClientMessage(String message) {
             try {
                 JsonObject request = gson.fromJson(message, JsonObject.class);
+                currentRequestId = request.get("requestId");
                 String action = request.get("action").getAsString();
 
                 switch (action) {
@@ -170,14 +432,32 @@ public class ProjectSocketServer {
                     case "get_project_status":
                         handleGetProjectStatus(request);
                         break;
+                    case "get_project_statuses":
+                        handleGetProjectStatuses(request);
+                        break;
+                    case "reference_data_changed":
+                        handleReferenceDataChanged(request);
+                        break;
+                    case "project_changed":
+                        handleProjectChanged(request);
+                        break;
                     default:
                         sendErrorResponse("Hành động không được hỗ trợ: " + action);
                 }
             } catch (Exception e) {
                 sendErrorResponse("Lỗi xử lý yêu cầu: " + e.getMessage());
                 e.printStackTrace(); // Log chi tiết lỗi
+            } finally {
+                currentRequestId = null;
             }
         }
+
+        void sendResponse(JsonObject response) {
+            if (currentRequestId != null) {
+                response.add("requestId", currentRequestId);
+            }
+            sendMessage(gson.toJson(response));
+        }
 // Xử lý kết nối từ client
         private void handleConnect(JsonObject request) {
             try {
@@ -198,7 +478,9 @@ public class ProjectSocketServer {
                 response.addProperty("action", "connect_response");
                 response.addProperty("status", "success");
                 response.addProperty("message", "Kết nối thành công");
-                sendMessage(gson.toJson(response));
+                // Version hiện tại để client bắt đầu theo dõi thông báo thay đổi đồ án
+                response.addProperty("projectVersion", projectVersion.get());
+                sendResponse(response);
 
                 System.out.println("User " + userId + " đã kết nối");
             } catch (Exception e) {
@@ -245,8 +527,7 @@ public class ProjectSocketServer {
                 }
 
                 // Kiểm tra project tồn tại
-                Project project = projectDAO.findById(projectId);
-                if (project == null) {
+                if (!projectExists(projectId)) {
                     sendErrorResponse("Không tìm thấy đồ án với ID: " + projectId);
                     return;
                 }
@@ -261,21 +542,8 @@ public class ProjectSocketServer {
                 }
 
                 // Tạo tên file unique với xử lý extension an toàn
-                String timestamp = String.valueOf(System.currentTimeMillis());
-                String extension = "";
-                int dotIndex = fileName.lastIndexOf('.');
-                if (dotIndex > 0 && dotIndex < fileName.length() - 1) {
-                    extension = fileName.substring(dotIndex);
-                }
-
-                String uniqueFileName = "project_" + projectId + "_" + timestamp + extension;
-                String filePath = UPLOAD_DIR + uniqueFileName;
-
-                // Validate file path
-                if (filePath == null || filePath.trim().isEmpty()) {
-                    sendErrorResponse("Đường dẫn file tải lên không hợp lệ: null");
-                    return;
-                }
+                String filePath = buildUploadPath(projectId, fileName);
+                String uniqueFileName = filePath.substring(UPLOAD_DIR.length());
 
                 // Kiểm tra đường dẫn file hợp lệ
                 Path targetPath = Paths.get(filePath);
@@ -299,26 +567,12 @@ public class ProjectSocketServer {
                 }
 
                 // Cập nhật database với file mới
+                ProjectStatusView project;
                 try {
-                    synchronized (projectDAO) {
-                        // Kiểm tra lại project trước khi cập nhật
-                        Project updatedProject = projectDAO.findById(projectId);
-                        if (updatedProject == null) {
-                            // Xóa file đã tạo nếu project không tồn tại
-                            Files.deleteIfExists(targetPath);
-                            sendErrorResponse("Đồ án không tồn tại khi cập nhật database");
-                            return;
-                        }
-
-                        // Thêm file path vào database
-                        projectDAO.addFile(projectId, filePath);
-
-                        // Cập nhật ngày nộp
-                        updatedProject.setNgayNop(new java.util.Date());
-                        projectDAO.updateProject(updatedProject);
-
-                        // Refresh project data
-                        project = projectDAO.findById(projectId);
+                    project = recordUpload(projectId, filePath);
+                    if (project == null) {
+                        sendErrorResponse("Đồ án không tồn tại khi cập nhật database");
+                        return;
                     }
                 } catch (SQLException e) {
                     // Xóa file nếu cập nhật database thất bại
@@ -339,12 +593,11 @@ public class ProjectSocketServer {
                 response.addProperty("filePath", filePath);
                 response.addProperty("fileName", uniqueFileName);
                 response.addProperty("fileSize", decodedData.length);
-                sendMessage(gson.toJson(response));
+                sendResponse(response);
 
                 // Gửi thông báo đến tất cả client
-                if (project != null) {
-                    broadcastNotification("Đồ án '" + project.getTitle() + "' đã được nộp", "project_submitted");
-                }
+                broadcastProjectChange(project, filePath, "Đồ án '" + project.getTitle() + "' đã được nộp", "project_submitted",
+                        ProjectChangeEvent.FIELD_NGAY_NOP, ProjectChangeEvent.FIELD_LATEST_FILE);
 
                 System.out.println("File uploaded successfully: " + filePath);
 
@@ -367,13 +620,12 @@ public class ProjectSocketServer {
                     return;
                 }
 
-                Project project = projectDAO.findById(projectId);
-                if (project == null) {
+                if (!projectExists(projectId)) {
                     sendErrorResponse("Không tìm thấy đồ án với ID: " + projectId);
                     return;
                 }
 
-                String filePath = project.getLatestFilePath();
+                String filePath = projectDAO.findLatestFilePath(projectId);
                 if (filePath == null || filePath.trim().isEmpty()) {
                     sendErrorResponse("Không có file để tải xuống cho đồ án ID: " + projectId);
                     return;
@@ -407,7 +659,7 @@ public class ProjectSocketServer {
                 response.addProperty("fileName", file.getName());
                 response.addProperty("fileData", encodedData);
                 response.addProperty("fileSize", file.length());
-                sendMessage(gson.toJson(response));
+                sendResponse(response);
 
                 System.out.println("File downloaded: " + filePath);
 
@@ -442,34 +694,36 @@ public class ProjectSocketServer {
                     return;
                 }
 
-                Project project = projectDAO.findById(projectId);
-                if (project == null) {
-                    sendErrorResponse("Không tìm thấy đồ án với ID: " + projectId);
-                    return;
-                }
-
-                // Cập nhật trạng thái
-                project.setStatus(status);
-                if ("DA_NOP".equals(status)) {
-                    project.setNgayNop(new java.util.Date());
-                }
-
+                // Cập nhật trạng thái (chỉ các cột status, ngay_nop). Ngày nộp chỉ đổi khi nộp, các trạng thái khác
+                // truyền null để DB giữ ngày đang lưu. Cache đã được ProjectDAO vô hiệu sau commit; trạng thái dùng
+                // để thông báo là dòng đọc lại trong transaction, không lấy từ cache
+                java.util.Date ngayNop = "DA_NOP".equals(status) ? new java.util.Date() : null;
+                ProjectStatusView project;
                 try {
-                    projectDAO.updateProject(project);
+                    project = projectDAO.updateStatus(projectId, status, ngayNop);
                 } catch (SQLException e) {
                     sendErrorResponse("Lỗi cập nhật database: " + e.getMessage());
                     return;
                 }
+                if (project == null) {
+                    sendErrorResponse("Không tìm thấy đồ án với ID: " + projectId);
+                    return;
+                }
 
                 JsonObject response = new JsonObject();
                 response.addProperty("action", "submit_response");
                 response.addProperty("status", "success");
                 response.addProperty("message", "Cập nhật trạng thái đồ án thành công");
-                sendMessage(gson.toJson(response));
+                sendResponse(response);
 
                 // Thông báo cho các client khác
                 String message = "Đồ án '" + project.getTitle() + "' đã được cập nhật trạng thái: " + status;
-                broadcastNotification(message, "project_status_updated");
+                if ("DA_NOP".equals(status)) {
+                    broadcastProjectChange(project, null, message, "project_status_updated",
+                            ProjectChangeEvent.FIELD_STATUS, ProjectChangeEvent.FIELD_NGAY_NOP);
+                } else {
+                    broadcastProjectChange(project, null, message, "project_status_updated", ProjectChangeEvent.FIELD_STATUS);
+                }
 
                 System.out.println("Project status updated: " + projectId + " -> " + status);
 
@@ -492,7 +746,7 @@ public class ProjectSocketServer {
                     return;
                 }
 
-                Project project = projectDAO.findById(projectId);
+                ProjectStatusView project = findProjectStatus(projectId);
                 if (project == null) {
                     sendErrorResponse("Không tìm thấy đồ án với ID: " + projectId);
                     return;
@@ -506,7 +760,53 @@ public class ProjectSocketServer {
                 response.addProperty("title", project.getTitle());
                 response.addProperty("submissionDate", project.getNgayNop() != null ?
                         project.getNgayNop().toString() : null);
-                sendMessage(gson.toJson(response));
+                sendResponse(response);
+
+            } catch (Exception e) {
+                sendErrorResponse("Lỗi lấy trạng thái đồ án: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        // Trạng thái của nhiều đồ án trong một yêu cầu: {"projectIds": [1, 2, ...]}.
+        // Phản hồi "projects" là mảng gọn, mỗi phần tử [projectId, status, title, ngayNop (epoch millis hoặc null)];
+        // id không tồn tại được liệt kê trong "notFound"
+        private void handleGetProjectStatuses(JsonObject request) {
+            try {
+                if (!request.has("projectIds") || !request.get("projectIds").isJsonArray()) {
+                    sendErrorResponse("Danh sách ID đồ án không được để trống");
+                    return;
+                }
+                JsonArray idArray = request.getAsJsonArray("projectIds");
+                if (idArray.size() > MAX_STATUS_BATCH_SIZE) {
+                    sendErrorResponse("Tối đa " + MAX_STATUS_BATCH_SIZE + " đồ án mỗi yêu cầu");
+                    return;
+                }
+                Set<Integer> requestedIds = new LinkedHashSet<>();
+                for (JsonElement id : idArray) {
+                    requestedIds.add(id.getAsInt());
+                }
+
+                JsonArray projects = new JsonArray();
+                for (ProjectStatusView view : projectStatusCache.getAll(new ArrayList<>(requestedIds),
+                        projectDAO::findStatusesByIds)) {
+                    JsonArray row = new JsonArray();
+                    row.add(view.getProjectId());
+                    row.add(view.getStatus());
+                    row.add(view.getTitle());
+                    row.add(view.getNgayNop() != null ? view.getNgayNop().getTime() : null);
+                    projects.add(row);
+                    requestedIds.remove(view.getProjectId());
+                }
+                JsonArray notFound = new JsonArray();
+                requestedIds.forEach(notFound::add);
+
+                JsonObject response = new JsonObject();
+                response.addProperty("action", "project_statuses_response");
+                response.addProperty("status", "success");
+                response.add("projects", projects);
+                response.add("notFound", notFound);
+                sendResponse(response);
 
             } catch (Exception e) {
                 sendErrorResponse("Lỗi lấy trạng thái đồ án: " + e.getMessage());
@@ -514,34 +814,200 @@ public class ProjectSocketServer {
             }
         }
 
-        private void sendErrorResponse(String errorMessage) {
+        // Client vừa sửa một đồ án trực tiếp trong DB: {"projectId": n}. Bỏ trạng thái đang cache để lần hỏi sau
+        // đọc lại từ DB
+        private void handleProjectChanged(JsonObject request) {
+            if (!request.has("projectId") || request.get("projectId").isJsonNull()) {
+                sendErrorResponse("ID đồ án không được để trống");
+                return;
+            }
+            projectStatusCache.invalidate(request.get("projectId").getAsInt());
+
+            JsonObject response = new JsonObject();
+            response.addProperty("action", "project_changed_response");
+            response.addProperty("status", "success");
+            sendResponse(response);
+        }
+
+        // Client vừa sửa danh sách sinh viên/giảng viên: {"entity": "student"|"teacher"}.
+        // Chuyển tiếp cho các client khác để chúng xóa cache ReferenceDataCache tương ứng
+        private void handleReferenceDataChanged(JsonObject request) {
+            String entity = request.has("entity") ? request.get("entity").getAsString() : "";
+            if (!ReferenceDataCache.STUDENT.equals(entity) && !ReferenceDataCache.TEACHER.equals(entity)) {
+                sendErrorResponse("Loại dữ liệu không hợp lệ: " + entity);
+                return;
+            }
+            broadcastReferenceDataChanged(entity, this);
+
+            JsonObject response = new JsonObject();
+            response.addProperty("action", "reference_data_changed_response");
+            response.addProperty("status", "success");
+            sendResponse(response);
+        }
+
+        void sendErrorResponse(String errorMessage) {
             JsonObject response = new JsonObject();
             response.addProperty("action", "error");
             response.addProperty("status", "error");
             response.addProperty("message", errorMessage);
             response.addProperty("timestamp", System.currentTimeMillis());
-            sendMessage(gson.toJson(response));
+            sendResponse(response);
 
             System.err.println("Error sent to client: " + errorMessage);
         }
 
+    }
+
+    ClientConnection newNioConnection(NioSelectorServer.Session session) {
+        return new NioClientConnection(session);
+    }
+
+    // Chế độ NIO: gửi chỉ xếp tin nhắn vào hàng đợi của phiên, thread I/O sẽ ghi khi socket sẵn sàng
+    private class NioClientConnection extends ClientConnection {
+        private final NioSelectorServer.Session session;
+
+        NioClientConnection(NioSelectorServer.Session session) {
+            this.session = session;
+        }
+
+        @Override
+        void sendMessage(String message) {
+            session.send(message, false);
+        }
+
+        @Override
+        void sendNotification(String message) {
+            session.send(message, true);
+        }
+    }
+
+    // Chế độ blocking: mỗi client chiếm một thread của threadPool trong suốt thời gian kết nối
+    private class ClientHandler extends ClientConnection implements Runnable {
+        private Socket socket;
+        private BufferedReader reader;
+        private PrintWriter writer;
+        // Tin nhắn chờ gửi, được writer task ghi ra socket để thread gọi không bao giờ chặn trên I/O của client này
+        private final BlockingQueue<String> outbound = new ArrayBlockingQueue<>(OUTBOUND_QUEUE_CAPACITY);
+        private final AtomicBoolean writerScheduled = new AtomicBoolean();
+        // Thời điểm writer task ghi xong tin nhắn gần nhất (hoặc hàng đợi bắt đầu có dữ liệu)
+        private volatile long lastProgressNanos = System.nanoTime();
+        private volatile boolean closed;
+//Sử dụng ExecutorService với Executors.newFixedThreadPool(10) để quản lý nhiều thread xử lý các kết nối client đồng thời.
+//Mỗi ClientHandler được chạy trong một thread riêng (qua threadPool.submit(clientHandler)), cho phép server xử lý nhiều client cùng lúc.
+//Thread listener trong start() để chấp nhận kết nối mới từ serverSocket.accept().
+        public ClientHandler(Socket socket) {
+            this.socket = socket;
+            try {
+                reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                // Không autoflush: writer task chỉ flush khi đã ghi hết các tin nhắn đang chờ
+                writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())));
+            } catch (IOException e) {
+                System.err.println("Lỗi khởi tạo client handler: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                String inputLine;
+                while ((inputLine = reader.readLine()) != null) {
+                    handleClientMessage(inputLine);
+                }
+            } catch (IOException e) {
+                System.err.println("Lỗi xử lý client: " + e.getMessage());
+            } finally {
+                cleanup();
+            }
+        }
+
+        @Override
         public void sendMessage(String message) {
-            if (writer != null && !socket.isClosed()) {
+            if (closed || writer == null) {
+                return;
+            }
+            // Phản hồi được gửi từ chính thread xử lý client này nên có thể chờ hàng đợi trống chỗ
+            try {
+                if (!outbound.offer(message, SLOW_CONSUMER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    disconnectSlowConsumer("hàng đợi gửi đầy quá " + SLOW_CONSUMER_TIMEOUT_MS + "ms");
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            scheduleWriter();
+        }
+
+        @Override
+        void sendNotification(String message) {
+            if (closed || writer == null) {
+                return;
+            }
+            if (!outbound.offer(message)) {
+                if (System.nanoTime() - lastProgressNanos > TimeUnit.MILLISECONDS.toNanos(SLOW_CONSUMER_TIMEOUT_MS)) {
+                    disconnectSlowConsumer("không nhận dữ liệu trong " + SLOW_CONSUMER_TIMEOUT_MS + "ms");
+                }
+                return;
+            }
+            scheduleWriter();
+        }
+
+        private void scheduleWriter() {
+            if (!outbound.isEmpty() && writerScheduled.compareAndSet(false, true)) {
                 try {
+                    writerPool.execute(this::drainOutbound);
+                } catch (RejectedExecutionException e) {
+                    writerScheduled.set(false);
+                }
+            }
+        }
+
+        // Ghi hết hàng đợi rồi flush một lần; nếu client ngừng đọc thì thread này chặn ở đây, không phải thread gửi
+        private void drainOutbound() {
+            lastProgressNanos = System.nanoTime();
+            try {
+                String message;
+                while (!closed && (message = outbound.poll()) != null) {
                     writer.println(message);
-                    writer.flush();
-                } catch (Exception e) {
-                    System.err.println("Lỗi gửi message: " + e.getMessage());
+                    if (outbound.isEmpty()) {
+                        writer.flush();
+                    }
+                    lastProgressNanos = System.nanoTime();
+                }
+                if (writer.checkError()) {
+                    closeSocket();
+                }
+            } finally {
+                writerScheduled.set(false);
+                // Tin nhắn có thể được thêm sau vòng lặp trên nhưng trước khi hạ cờ
+                if (!closed) {
+                    scheduleWriter();
                 }
             }
         }
 
+        private void disconnectSlowConsumer(String reason) {
+            System.err.println("Ngắt kết nối client chậm " + (userId != null ? userId : socket.getRemoteSocketAddress())
+                    + ": " + reason);
+            closeSocket();
+        }
+
+        // Đóng socket làm readLine() trong run() và lệnh ghi đang chặn của writer task kết thúc ngay
+        private void closeSocket() {
+            closed = true;
+            outbound.clear();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.err.println("Lỗi đóng socket client: " + e.getMessage());
+            }
+        }
+
         private void cleanup() {
             try {
-                if (userId != null) {
-                    connectedClients.remove(userId);
-                    System.out.println("User " + userId + " đã ngắt kết nối");
-                }
+                closed = true;
+                outbound.clear();
+                unregister();
                 if (socket != null && !socket.isClosed()) {
                     socket.close();
                 }
@@ -560,13 +1026,14 @@ public class ProjectSocketServer {
     public static void main(String[] args) {
         // Khởi động server với kết nối database
         try {
-            Connection dbConnection = org.projectmanagement.util.DBConnection.getConnection();
-            ProjectSocketServer server = new ProjectSocketServer(dbConnection);
+            DataSource dataSource = org.projectmanagement.util.DBConnection.getDataSource();
+            ProjectSocketServer server = new ProjectSocketServer(dataSource);
 
             // Thêm shutdown hook để đóng server một cách graceful
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 System.out.println("Đang tắt server...");
                 server.stop();
+                org.projectmanagement.util.DBConnection.shutdown();
             }));
 
             server.start();
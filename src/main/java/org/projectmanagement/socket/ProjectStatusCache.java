@@ -0,0 +1,108 @@
+package org.projectmanagement.socket;
+
+import org.projectmanagement.models.ProjectStatusView;
+import org.projectmanagement.util.LruCache;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Cache trạng thái đồ án của socket server, để các client hỏi trạng thái liên tục (gần hạn nộp) được trả từ bộ nhớ.
+// - LRU giới hạn maxEntries phần tử, mỗi phần tử sống tối đa ttlMs (chặn dữ liệu cũ nếu lỡ thông báo thay đổi)
+// - Mỗi phần tử mang version tăng dần. Lệnh ghi chỉ gọi invalidate (sau commit), để lại một "bia mộ" không có
+//   dữ liệu với version mới. Giá trị đọc từ DB chỉ được đưa vào cache nếu version của key không đổi trong lúc
+//   đọc, nên một lần đọc chậm không thể ghi đè kết quả của lệnh ghi xảy ra sau nó.
+class ProjectStatusCache {
+    // Loader đọc trạng thái từ DB cho các id bị miss; id không tồn tại thì không có trong kết quả
+    interface Loader {
+        List<ProjectStatusView> load(List<Integer> projectIds) throws SQLException;
+    }
+
+    // Giới hạn kích thước và TTL do LruCache lo; mọi thao tác ghép (đọc version rồi ghi) chạy dưới khóa của lớp này
+    private final LruCache<Integer, Entry> entries;
+    private long versions;
+
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    ProjectStatusCache(int maxEntries, long ttlMs) {
+        this.entries = new LruCache<>(maxEntries, ttlMs);
+    }
+
+    ProjectStatusView get(int projectId, Loader loader) throws SQLException {
+        List<ProjectStatusView> found = getAll(List.of(projectId), loader);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    // Trạng thái của các id theo thứ tự yêu cầu (bỏ id không tồn tại); chỉ các id bị miss được đọc từ DB,
+    // trong một lần gọi loader
+    List<ProjectStatusView> getAll(List<Integer> projectIds, Loader loader) throws SQLException {
+        Map<Integer, ProjectStatusView> result = new HashMap<>();
+        Map<Integer, Long> missed = new LinkedHashMap<>();
+        synchronized (this) {
+            for (Integer id : projectIds) {
+                Entry entry = entries.get(id);
+                if (entry != null && entry.view != null) {
+                    hits++;
+                    result.put(id, entry.view);
+                } else {
+                    misses++;
+                    missed.put(id, entry != null ? entry.version : -1L);
+                }
+            }
+        }
+        if (!missed.isEmpty()) {
+            List<ProjectStatusView> loaded = loader.load(new ArrayList<>(missed.keySet()));
+            synchronized (this) {
+                for (ProjectStatusView view : loaded) {
+                    result.put(view.getProjectId(), view);
+                    Entry current = entries.get(view.getProjectId());
+                    long currentVersion = current != null ? current.version : -1L;
+                    // Có lệnh ghi trong lúc đọc DB: bỏ giá trị vừa đọc, lần sau đọc lại
+                    if (Long.valueOf(currentVersion).equals(missed.get(view.getProjectId()))) {
+                        entries.put(view.getProjectId(), new Entry(view, ++versions));
+                    }
+                }
+            }
+        }
+        List<ProjectStatusView> ordered = new ArrayList<>(result.size());
+        for (Integer id : projectIds) {
+            ProjectStatusView view = result.get(id);
+            if (view != null) {
+                ordered.add(view);
+            }
+        }
+        return ordered;
+    }
+
+    synchronized void invalidate(int projectId) {
+        invalidations++;
+        entries.put(projectId, new Entry(null, ++versions));
+    }
+
+    synchronized String metrics() {
+        long lookups = hits + misses;
+        return String.format("Cache trạng thái đồ án: %d phần tử, hit %d, miss %d (%.1f%% hit), loại bỏ %d, vô hiệu %d",
+                entries.size(), hits, misses, lookups > 0 ? hits * 100.0 / lookups : 0.0, entries.getEvictions(),
+                invalidations);
+    }
+
+    synchronized long getHits() { return hits; }
+    synchronized long getMisses() { return misses; }
+    long getEvictions() { return entries.getEvictions(); }
+    synchronized long getInvalidations() { return invalidations; }
+
+    private static final class Entry {
+        private final ProjectStatusView view;
+        private final long version;
+
+        Entry(ProjectStatusView view, long version) {
+            this.view = view;
+            this.version = version;
+        }
+    }
+}
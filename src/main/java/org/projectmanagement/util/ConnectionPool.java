@@ -0,0 +1,317 @@
+package org.projectmanagement.util;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// Pool kết nối có giới hạn: mỗi thao tác DAO mượn một Connection rồi close() để trả lại pool.
+// - minSize/maxSize: số kết nối tối thiểu được giữ sẵn và tối đa được mở cùng lúc
+// - acquireTimeoutMs: thời gian chờ tối đa khi pool đã hết kết nối
+// - idleTimeoutMs: kết nối rảnh quá lâu (vượt quá minSize) sẽ bị đóng
+// - leakDetectionThresholdMs: cảnh báo khi một kết nối bị mượn quá lâu mà chưa trả (0 = tắt)
+public class ConnectionPool implements DataSource {
+    // Bỏ qua bước kiểm tra nếu kết nối vừa được trả lại trong khoảng thời gian này
+    private static final long VALIDATION_BYPASS_MS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_PERIOD_MS = 30_000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long leakDetectionThresholdMs;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledEntry> idleConnections = new LinkedBlockingDeque<>();
+    private final Map<PooledEntry, Throwable> borrowedConnections = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long acquireTimeoutMs, long idleTimeoutMs, long leakDetectionThresholdMs) throws SQLException {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Kích thước pool không hợp lệ: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.leakDetectionThresholdMs = leakDetectionThresholdMs;
+        this.permits = new Semaphore(maxSize, true);
+
+        // Mở sẵn minSize kết nối, đồng thời kiểm tra cấu hình database ngay khi khởi động
+        for (int i = 0; i < minSize; i++) {
+            idleConnections.offerLast(new PooledEntry(openPhysicalConnection()));
+        }
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_PERIOD_MS, HOUSEKEEPING_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Mượn một kết nối từ pool; gọi close() trên kết nối trả về để trả lại pool
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool đã bị đóng");
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Hết thời gian chờ kết nối database sau " + acquireTimeoutMs
+                        + "ms (đang dùng " + borrowedConnections.size() + "/" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Bị gián đoạn khi chờ kết nối database", e);
+        }
+
+        try {
+            PooledEntry entry = takeValidIdleEntry();
+            if (entry == null) {
+                entry = new PooledEntry(openPhysicalConnection());
+            }
+            entry.lastBorrowedAt = System.currentTimeMillis();
+            borrowedConnections.put(entry, leakDetectionThresholdMs > 0
+                    ? new Throwable("Kết nối được mượn tại đây") : NO_TRACE);
+            return entry.newProxy();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pool chỉ hỗ trợ tài khoản đã cấu hình");
+    }
+
+    private PooledEntry takeValidIdleEntry() {
+        PooledEntry entry;
+        while ((entry = idleConnections.pollFirst()) != null) {
+            if (System.currentTimeMillis() - entry.lastReturnedAt < VALIDATION_BYPASS_MS || isAlive(entry.physical)) {
+                return entry;
+            }
+            closeQuietly(entry.physical);
+        }
+        return null;
+    }
+
+    private Connection openPhysicalConnection() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    // Trả kết nối về pool sau khi khôi phục trạng thái mặc định
+    private void release(PooledEntry entry) {
+        if (borrowedConnections.remove(entry) == null) {
+            return;
+        }
+        try {
+            boolean reusable = !closed && !entry.physical.isClosed();
+            if (reusable && !entry.physical.getAutoCommit()) {
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+            if (reusable && entry.physical.isReadOnly()) {
+                entry.physical.setReadOnly(false);
+            }
+            if (reusable) {
+                entry.lastReturnedAt = System.currentTimeMillis();
+                idleConnections.offerFirst(entry);
+            } else {
+                closeQuietly(entry.physical);
+            }
+        } catch (SQLException e) {
+            System.err.println("Loại bỏ kết nối lỗi khỏi pool: " + e.getMessage());
+            closeQuietly(entry.physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Đóng kết nối rảnh quá idleTimeout, bù lại cho đủ minSize và cảnh báo kết nối bị giữ quá lâu
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+            int surplus = idleConnections.size() + borrowedConnections.size() - minSize;
+            Iterator<PooledEntry> it = idleConnections.descendingIterator();
+            while (it.hasNext() && surplus > 0) {
+                PooledEntry entry = it.next();
+                if (now - entry.lastReturnedAt > idleTimeoutMs && idleConnections.remove(entry)) {
+                    closeQuietly(entry.physical);
+                    surplus--;
+                }
+            }
+
+            while (!closed && idleConnections.size() + borrowedConnections.size() < minSize) {
+                idleConnections.offerLast(new PooledEntry(openPhysicalConnection()));
+            }
+
+            if (leakDetectionThresholdMs > 0) {
+                for (Map.Entry<PooledEntry, Throwable> borrowed : borrowedConnections.entrySet()) {
+                    PooledEntry entry = borrowed.getKey();
+                    if (!entry.leakReported && now - entry.lastBorrowedAt > leakDetectionThresholdMs) {
+                        entry.leakReported = true;
+                        System.err.println("Nghi ngờ rò rỉ kết nối: đã mượn " + (now - entry.lastBorrowedAt) + "ms mà chưa trả");
+                        borrowed.getValue().printStackTrace();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Lỗi bảo trì connection pool: " + e.getMessage());
+        }
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idleConnections.pollFirst()) != null) {
+            closeQuietly(entry.physical);
+        }
+    }
+
+    public int getActiveCount() {
+        return borrowedConnections.size();
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private static boolean isAlive(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private static final Throwable NO_TRACE = new Throwable();
+
+    // Một kết nối vật lý cùng thông tin mượn/trả của nó
+    private final class PooledEntry {
+        private final Connection physical;
+        private volatile long lastBorrowedAt;
+        private volatile long lastReturnedAt;
+        private volatile boolean leakReported;
+
+        private PooledEntry(Connection physical) {
+            this.physical = physical;
+            this.lastReturnedAt = System.currentTimeMillis();
+        }
+
+        // Proxy chặn close() để trả về pool thay vì đóng kết nối vật lý
+        private Connection newProxy() {
+            leakReported = false;
+            InvocationHandler handler = new InvocationHandler() {
+                private boolean returned = false;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!returned) {
+                                returned = true;
+                                release(PooledEntry.this);
+                            }
+                            return null;
+                        case "isClosed":
+                            return returned || physical.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "PooledConnection[" + physical + "]";
+                        default:
+                            if (returned) {
+                                throw new SQLException("Kết nối đã được trả về pool");
+                            }
+                            try {
+                                return method.invoke(physical, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, handler);
+        }
+    }
+
+    // Các phương thức DataSource còn lại không dùng tới
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Không thể unwrap thành " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
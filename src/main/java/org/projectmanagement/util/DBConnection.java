@@ -1,20 +1,62 @@
 package org.projectmanagement.util;
 
+import org.projectmanagement.dao.ProjectChildWriter;
+
+import javax.sql.DataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DBConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/projectmagement?useSSL=false&serverTimezone=UTC";
+    private static final String URL = "jdbc:mysql://localhost:3306/projectmagement?useSSL=false&serverTimezone=UTC&rewriteBatchedStatements=true";
     private static final String USER = "root";   // sửa theo user của bạn
     private static final String PASSWORD = "";   // sửa password
 
-    private static Connection connection;
+    // Cấu hình pool, có thể ghi đè bằng -Ddb.pool.maxSize=20 ...
+    private static final int POOL_MIN_SIZE = Integer.getInteger("db.pool.minSize", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("db.pool.maxSize", 12);
+    private static final long ACQUIRE_TIMEOUT_MS = Long.getLong("db.pool.acquireTimeoutMs", 10_000L);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("db.pool.idleTimeoutMs", 300_000L);
+    private static final long LEAK_DETECTION_MS = Long.getLong("db.pool.leakDetectionMs", 60_000L);
+
+    // Bộ ghi theo lô cho bình luận/file: số dòng mỗi lô và thời gian chờ tối đa trước khi ghi
+    private static final int CHILD_BATCH_SIZE = Integer.getInteger("db.childWriter.batchSize", 100);
+    private static final long CHILD_FLUSH_MS = Long.getLong("db.childWriter.flushMs", 50L);
+
+    private static ConnectionPool pool;
+    private static ProjectChildWriter childWriter;
+
+    // Pool dùng chung cho toàn bộ DAO, socket server và các SwingWorker
+    public static synchronized DataSource getDataSource() throws SQLException {
+        if (pool == null) {
+            pool = new ConnectionPool(URL, USER, PASSWORD, POOL_MIN_SIZE, POOL_MAX_SIZE,
+                    ACQUIRE_TIMEOUT_MS, IDLE_TIMEOUT_MS, LEAK_DETECTION_MS);
+        }
+        return pool;
+    }
 
+    // Mượn một kết nối từ pool; người gọi phải close() để trả lại
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(URL, USER, PASSWORD);
+        return getDataSource().getConnection();
+    }
+
+    // Bộ ghi bình luận/file theo lô dùng chung, được ghi hết trước khi đóng pool trong shutdown()
+    public static synchronized ProjectChildWriter getProjectChildWriter() throws SQLException {
+        if (childWriter == null) {
+            childWriter = new ProjectChildWriter(getDataSource(), CHILD_BATCH_SIZE, CHILD_FLUSH_MS);
+            // Ghi hết các dòng còn chờ khi ứng dụng thoát
+            Runtime.getRuntime().addShutdownHook(new Thread(DBConnection::shutdown, "db-shutdown"));
+        }
+        return childWriter;
+    }
+
+    public static synchronized void shutdown() {
+        if (childWriter != null) {
+            childWriter.close();
+            childWriter = null;
+        }
+        if (pool != null) {
+            pool.close();
+            pool = null;
         }
-        return connection;
     }
 }
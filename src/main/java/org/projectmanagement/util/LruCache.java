@@ -0,0 +1,102 @@
+package org.projectmanagement.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Cache LRU có giới hạn số phần tử và thời gian sống (TTL) cho mỗi phần tử.
+// - maxSize: vượt quá thì bỏ phần tử lâu không được dùng nhất
+// - ttlMs: phần tử cũ hơn ttlMs coi như không có (0 = không hết hạn)
+// Mọi thao tác đồng bộ trên một khóa; nạp dữ liệu từ DB phải làm bên ngoài khóa (xem generation()).
+public class LruCache<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    // Tăng mỗi lần clear(): giá trị nạp từ DB bắt đầu trước một lần clear() thì không được đưa vào cache
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public LruCache(int maxSize, long ttlMs) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Kích thước cache không hợp lệ: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Giá trị còn hạn của key, null nếu không có hoặc đã hết hạn
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (isExpired(entry)) {
+            entries.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    // Chỉ đưa vào cache nếu chưa có clear() nào kể từ khi lấy expectedGeneration
+    public synchronized boolean putIfGeneration(K key, V value, long expectedGeneration) {
+        if (generation != expectedGeneration) {
+            return false;
+        }
+        put(key, value);
+        return true;
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        generation++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+
+    private boolean isExpired(Entry<V> entry) {
+        return ttlNanos > 0 && System.nanoTime() - entry.loadedAtNanos > ttlNanos;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAtNanos;
+
+        Entry(V value, long loadedAtNanos) {
+            this.value = value;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+}